@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The models, the dictionary and the sentences of the tests, shared by the
+ * benchmarks.
+ *
+ * <p>
+ * Besides the raw sentences, the sentences analyzed up to each layer are
+ * prepared, so that a stage can be measured alone. A benchmark must not modify
+ * them, but run the stage on a copy made by {@link #copyTokens(Tree)} or
+ * {@link #copyChunks(Tree)}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkResources {
+
+    Path directory;
+    Param param;
+    List<String> sentences;
+    List<Tree> posTrees;
+    List<Tree> chunkTrees;
+    List<Tree> selectionTrees;
+    List<Tree> resolvedTrees;
+    List<Tree> depTrees;
+
+    MorphAnalyzer morphAnalyzer;
+    Chunker chunker;
+    Selector selector;
+    Selector resolvingSelector;
+    DependencyParser dependencyParser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("kintoki-jmh");
+        TestUtils.copyResources(directory);
+        param = new Param();
+        param.loadConfig(TestUtils.buildConfig(directory));
+
+        try (InputStream input = TestUtils.class.getResourceAsStream(TestUtils.INPUT_FILE);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            sentences = reader.lines().filter(l -> !l.isEmpty()).collect(Collectors.toList());
+        }
+
+        morphAnalyzer = new MorphAnalyzer();
+        morphAnalyzer.open(param);
+        chunker = new Chunker();
+        chunker.open(param);
+        selector = new Selector();
+        selector.open(param);
+        dependencyParser = new DependencyParser();
+        dependencyParser.open(param);
+        resolvingSelector = new Selector(dependencyParser.getModel());
+        resolvingSelector.open(param);
+
+        posTrees = new ArrayList<>();
+        chunkTrees = new ArrayList<>();
+        selectionTrees = new ArrayList<>();
+        resolvedTrees = new ArrayList<>();
+        depTrees = new ArrayList<>();
+        for (String sentence : sentences) {
+            Tree tree = new Tree();
+            tree.setSentence(sentence);
+            morphAnalyzer.parse(tree);
+            posTrees.add(tree);
+
+            tree = copyTokens(tree);
+            chunker.parse(tree);
+            chunkTrees.add(tree);
+
+            Tree selected = copyChunks(tree);
+            selector.parse(selected);
+            selectionTrees.add(selected);
+
+            Tree resolved = copyChunks(tree);
+            resolvingSelector.parse(resolved);
+            resolvedTrees.add(resolved);
+
+            Tree parsed = copyChunks(resolved);
+            dependencyParser.parse(parsed);
+            depTrees.add(parsed);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Copy the sentence and the tokens of a tree.
+     *
+     * @param tree
+     *            the tree analyzed up to the POS layer or more
+     * @return a new tree at the POS layer
+     */
+    static Tree copyTokens(Tree tree) {
+        Tree copy = new Tree();
+        copy.setSentence(tree.getSentence());
+        copy.getTokens().addAll(tree.getTokens());
+        copy.setOutputLayer(OutputLayerType.OUTPUT_POS);
+        return copy;
+    }
+
+    /**
+     * Copy a tree with new chunks, which have the same tokens and features as the
+     * original ones.
+     *
+     * @param tree
+     *            the tree analyzed up to the chunk layer or more
+     * @return a new tree at the same layer
+     */
+    static Tree copyChunks(Tree tree) {
+        Tree copy = copyTokens(tree);
+        for (Chunk chunk : tree.getChunks()) {
+            Chunk newChunk = new Chunk();
+            newChunk.setTokenPos(chunk.getTokenPos());
+            newChunk.getTokens().addAll(chunk.getTokens());
+            newChunk.setHeadPos(chunk.getHeadPos());
+            newChunk.setFuncPos(chunk.getFuncPos());
+            newChunk.getFeatureList().addAll(chunk.getFeatureList());
+            newChunk.setChunkInfo(chunk.getChunkInfo());
+            copy.getChunks().add(newChunk);
+        }
+        copy.setOutputLayer(tree.getOutputLayer());
+        return copy;
+    }
+}
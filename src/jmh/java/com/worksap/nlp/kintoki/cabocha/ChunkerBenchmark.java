@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.worksap.nlp.kintoki.cabocha.crf.Model;
+import com.worksap.nlp.kintoki.cabocha.crf.Tagger;
+
+/**
+ * Measures the chunking, both through {@link Chunker} and with the CRF
+ * {@link Tagger} alone. An operation analyzes all the sentences of
+ * {@link BenchmarkResources}.
+ */
+public class ChunkerBenchmark {
+
+    @State(Scope.Thread)
+    public static class TaggerState {
+        Tagger tagger;
+        List<String[][]> columns;
+
+        @Setup
+        public void setUp(BenchmarkResources resources) throws IOException {
+            Model model = Model.openBinaryModel(resources.param.getString(Param.CHUNKER_MODEL), 1.0, false);
+            tagger = model.createTagger();
+            columns = new ArrayList<>();
+            for (Tree tree : resources.posTrees) {
+                String[][] sentence = new String[tree.getTokenSize()][];
+                for (int i = 0; i < tree.getTokenSize(); i++) {
+                    Token token = tree.token(i);
+                    List<String> pos = token.getFeatureList();
+                    int size = pos.indexOf("*") < 0 ? pos.size() : pos.indexOf("*");
+                    sentence[i] = new String[] { token.getNormalizedSurface(), String.join("-", pos.subList(0, size)) };
+                }
+                columns.add(sentence);
+            }
+        }
+    }
+
+    @Benchmark
+    public void chunker(BenchmarkResources resources, Blackhole blackhole) {
+        for (Tree posTree : resources.posTrees) {
+            Tree tree = BenchmarkResources.copyTokens(posTree);
+            resources.chunker.parse(tree);
+            blackhole.consume(tree);
+        }
+    }
+
+    @Benchmark
+    public void tagger(TaggerState state, Blackhole blackhole) {
+        Tagger tagger = state.tagger;
+        for (String[][] sentence : state.columns) {
+            for (String[] token : sentence) {
+                tagger.add(token);
+            }
+            tagger.parse();
+            blackhole.consume(tagger.y(0));
+            tagger.clear();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.worksap.nlp.kintoki.cabocha.svm.SVMModel;
+
+/**
+ * Measures the dependency parsing, and the SVM classification alone. An
+ * operation of {@link #parse} analyzes all the sentences of
+ * {@link BenchmarkResources}, and that of {@link #classify} classifies the
+ * static features of all the pairs of adjacent chunks.
+ */
+public class DependencyParserBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FeatureState {
+        SVMModel model;
+        List<int[]> features;
+
+        @Setup
+        public void setUp(BenchmarkResources resources) {
+            model = resources.dependencyParser.getModel();
+            features = new ArrayList<>();
+            for (Tree tree : resources.resolvedTrees) {
+                for (int i = 1; i < tree.getChunkSize(); i++) {
+                    DependencyParserData data = new DependencyParserData();
+                    data.addFp(tree.chunk(i - 1).getChunkInfo().getSrcStaticFeature());
+                    data.addFp(tree.chunk(i).getChunkInfo().getDstStaticFeature());
+                    int size = data.sortFp();
+                    int[] vector = new int[size];
+                    System.arraycopy(data.getFp(), 0, vector, 0, size);
+                    features.add(vector);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void parse(BenchmarkResources resources, Blackhole blackhole) {
+        for (Tree resolvedTree : resources.resolvedTrees) {
+            Tree tree = BenchmarkResources.copyChunks(resolvedTree);
+            resources.dependencyParser.parse(tree);
+            blackhole.consume(tree);
+        }
+    }
+
+    @Benchmark
+    public void parseFromStrings(BenchmarkResources resources, Blackhole blackhole) {
+        for (Tree selectionTree : resources.selectionTrees) {
+            Tree tree = BenchmarkResources.copyChunks(selectionTree);
+            resources.dependencyParser.parse(tree);
+            blackhole.consume(tree);
+        }
+    }
+
+    @Benchmark
+    public void classify(FeatureState state, Blackhole blackhole) {
+        for (int[] vector : state.features) {
+            blackhole.consume(state.model.classify(vector, vector.length));
+        }
+    }
+}
@@ -14,15 +14,24 @@
  * limitations under the License.
  */
 
-package com.worksap.nlp.kintoki.cabocha.crf;
+package com.worksap.nlp.kintoki.cabocha;
 
-import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
 
-class Node {
-    int x;
-    int y;
-    double bestCost;
-    Node prev;
-    List<Integer> fVector;
-    List<Integer> lPathFVector;
+/**
+ * Measures the tokenization by Sudachi. An operation analyzes all the sentences
+ * of {@link BenchmarkResources}.
+ */
+public class MorphAnalyzerBenchmark {
+
+    @Benchmark
+    public void parse(BenchmarkResources resources, Blackhole blackhole) {
+        for (String sentence : resources.sentences) {
+            Tree tree = new Tree();
+            tree.setSentence(sentence);
+            resources.morphAnalyzer.parse(tree);
+            blackhole.consume(tree);
+        }
+    }
 }
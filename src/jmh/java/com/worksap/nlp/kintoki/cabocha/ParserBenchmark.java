@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the whole analysis from the raw sentences to the parsed trees. An
+ * operation analyzes all the sentences of {@link BenchmarkResources}, one by
+ * one or joined into a document.
+ */
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    Parser parser;
+    String document;
+
+    @Setup
+    public void setUp(BenchmarkResources resources) throws IOException {
+        parser = new Parser(resources.param);
+        parser.open();
+        document = String.join("\n", resources.sentences);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        parser.close();
+    }
+
+    @Benchmark
+    public void parse(BenchmarkResources resources, Blackhole blackhole) {
+        for (String sentence : resources.sentences) {
+            blackhole.consume(parser.parse(sentence));
+        }
+    }
+
+    @Benchmark
+    public void parseToString(BenchmarkResources resources, Blackhole blackhole) {
+        for (String sentence : resources.sentences) {
+            blackhole.consume(parser.parseToString(sentence));
+        }
+    }
+
+    @Benchmark
+    public void parseDocument(Blackhole blackhole) {
+        blackhole.consume(parser.parseDocument(document));
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the feature selection, with the features as strings and resolved to
+ * the IDs of the parser model. An operation analyzes all the sentences of
+ * {@link BenchmarkResources}.
+ */
+public class SelectorBenchmark {
+
+    @Benchmark
+    public void strings(BenchmarkResources resources, Blackhole blackhole) {
+        for (Tree chunkTree : resources.chunkTrees) {
+            Tree tree = BenchmarkResources.copyChunks(chunkTree);
+            resources.selector.parse(tree);
+            blackhole.consume(tree);
+        }
+    }
+
+    @Benchmark
+    public void resolved(BenchmarkResources resources, Blackhole blackhole) {
+        for (Tree chunkTree : resources.chunkTrees) {
+            Tree tree = BenchmarkResources.copyChunks(chunkTree);
+            resources.resolvingSelector.parse(tree);
+            blackhole.consume(tree);
+        }
+    }
+}
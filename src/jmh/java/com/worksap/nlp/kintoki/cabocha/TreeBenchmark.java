@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the rendering of the parsed trees. An operation renders all the
+ * sentences of {@link BenchmarkResources}.
+ */
+@State(Scope.Benchmark)
+public class TreeBenchmark {
+
+    // not imported, which would hide com.worksap.nlp.kintoki.cabocha.Param
+    @org.openjdk.jmh.annotations.Param({ "FORMAT_TREE", "FORMAT_LATTICE", "FORMAT_TREE_LATTICE", "FORMAT_XML",
+            "FORMAT_CONLL" })
+    public FormatType format;
+
+    @Benchmark
+    public void render(BenchmarkResources resources, Blackhole blackhole) {
+        for (Tree tree : resources.depTrees) {
+            blackhole.consume(tree.toString(format));
+        }
+    }
+
+    @Benchmark
+    public void writeTo(BenchmarkResources resources, Blackhole blackhole) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Tree tree : resources.depTrees) {
+            sb.setLength(0);
+            tree.writeTo(sb, format);
+            blackhole.consume(sb);
+        }
+    }
+}
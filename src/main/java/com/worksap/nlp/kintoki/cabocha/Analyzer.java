@@ -16,12 +16,30 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
+import java.io.Closeable;
 import java.io.IOException;
 
-public interface Analyzer {
+public interface Analyzer extends Closeable {
 
     public void open(Param param) throws IOException;
 
     public void parse(Tree tree);
 
+    /**
+     * Set the metrics to record the statistics specific to this analyzer.
+     *
+     * @param metrics
+     *            the metrics, or {@code null} to disable them
+     */
+    public default void setMetrics(ParserMetrics metrics) {
+    }
+
+    /**
+     * Release the models acquired by {@link #open(Param)}. The analyzer must not
+     * be used after closed.
+     */
+    @Override
+    public default void close() throws IOException {
+    }
+
 }
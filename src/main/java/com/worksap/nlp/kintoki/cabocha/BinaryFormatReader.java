@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the trees written by {@link BinaryFormatWriter}.
+ */
+public class BinaryFormatReader implements Closeable {
+
+    private final DataInputStream input;
+    private String[] strings = new String[0];
+    private int remaining = 0;
+    private byte[] buffer = new byte[256];
+
+    /**
+     * Creates a reader and checks the header of the format.
+     *
+     * @param input
+     *            the source
+     * @throws IOException
+     *             if {@code input} fails to read, or is not in the binary format
+     */
+    public BinaryFormatReader(InputStream input) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(input));
+        if (this.input.readInt() != BinaryFormatWriter.MAGIC) {
+            throw new IOException("invalid binary format");
+        }
+        int version = this.input.readInt();
+        if (version != BinaryFormatWriter.VERSION) {
+            throw new IOException("unsupported version: " + version);
+        }
+    }
+
+    /**
+     * Reads the next tree.
+     *
+     * @return the tree, or {@code null} at the end of the input
+     * @throws IOException
+     *             if the input fails to read or is broken
+     */
+    public Tree read() throws IOException {
+        if (remaining == 0 && !readBatch()) {
+            return null;
+        }
+        remaining--;
+
+        int length = input.readInt();
+        Tree tree = new Tree();
+        int layer = input.readByte();
+        for (OutputLayerType type : OutputLayerType.values()) {
+            if (type.getValue() == layer) {
+                tree.setOutputLayer(type);
+            }
+        }
+
+        int tokenSize = input.readInt();
+        if (tokenSize < 0) {
+            throw new IOException("invalid token size: " + tokenSize);
+        }
+        // the rest of the record is checked against its length before the
+        // arrays are allocated
+        long consumed = 1 + 4 + (tokenSize == 0 ? 4 : 0) + 8L * tokenSize + 4;
+        if (consumed > length) {
+            throw new IOException("invalid record length: " + length);
+        }
+        if (tokenSize == 0) {
+            tree.setSentence(string(input.readInt()));
+        }
+        Token[] tokens = new Token[tokenSize];
+        for (int i = 0; i < tokenSize; i++) {
+            Token token = new Token();
+            String surface = string(input.readInt());
+            token.setSurface(surface);
+            token.setNormalizedSurface(surface);
+            tokens[i] = token;
+        }
+        for (Token token : tokens) {
+            String feature = string(input.readInt());
+            token.setFeature(feature);
+            token.setFeatureList(Arrays.asList(feature.split(",")));
+            tree.getTokens().add(token);
+        }
+
+        int chunkSize = input.readInt();
+        if (chunkSize < 0 || consumed + 20L * chunkSize != length) {
+            throw new IOException("invalid chunk size: " + chunkSize);
+        }
+        Chunk[] chunks = new Chunk[chunkSize];
+        int[] tokenPos = new int[chunkSize + 1];
+        for (int i = 0; i < chunkSize; i++) {
+            tokenPos[i] = input.readInt();
+        }
+        tokenPos[chunkSize] = tokenSize;
+        for (int i = 0; i < chunkSize; i++) {
+            if (tokenPos[i] < 0 || tokenPos[i] > tokenPos[i + 1]) {
+                throw new IOException("invalid chunk boundary: " + tokenPos[i]);
+            }
+            Chunk chunk = new Chunk();
+            chunk.setTokenPos(tokenPos[i]);
+            chunk.getTokens().addAll(Arrays.asList(tokens).subList(tokenPos[i], tokenPos[i + 1]));
+            chunks[i] = chunk;
+            tree.getChunks().add(chunk);
+        }
+        for (Chunk chunk : chunks) {
+            chunk.setLink(input.readInt());
+        }
+        for (Chunk chunk : chunks) {
+            chunk.setHeadPos(input.readInt());
+        }
+        for (Chunk chunk : chunks) {
+            chunk.setFuncPos(input.readInt());
+        }
+        for (Chunk chunk : chunks) {
+            chunk.setScore(input.readFloat());
+        }
+
+        return tree;
+    }
+
+    private boolean readBatch() throws IOException {
+        int recordSize;
+        try {
+            recordSize = input.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+        int stringSize = input.readInt();
+        if (recordSize <= 0 || stringSize < 0) {
+            throw new IOException("invalid batch header");
+        }
+        strings = new String[stringSize];
+        for (int i = 0; i < stringSize; i++) {
+            int length = input.readInt();
+            if (length < 0) {
+                throw new IOException("invalid string length: " + length);
+            }
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            input.readFully(buffer, 0, length);
+            strings[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+        remaining = recordSize;
+        return true;
+    }
+
+    private String string(int id) throws IOException {
+        if (id < 0 || id >= strings.length) {
+            throw new IOException("invalid string id: " + id);
+        }
+        return strings[id];
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes parsed trees in a compact binary format, which
+ * {@link BinaryFormatReader} reads back without parsing text.
+ *
+ * <p>
+ * The trees are written in batches. The surfaces and the features of the
+ * tokens of a batch are stored once in the dictionary of the batch, and the
+ * records refer to them by index. All the numbers are big-endian.
+ *
+ * <pre>
+ * stream     := MAGIC VERSION batch*
+ * batch      := recordSize:int stringSize:int string* record*
+ * string     := length:int UTF-8 bytes
+ * record     := length:int layer:byte tokenSize:int [sentence:int if tokenSize is 0]
+ *               surface:int[tokenSize] feature:int[tokenSize]
+ *               chunkSize:int tokenPos:int[chunkSize] link:int[chunkSize]
+ *               headPos:int[chunkSize] funcPos:int[chunkSize] score:float[chunkSize]
+ * </pre>
+ *
+ * <p>
+ * The length of a record does not include the length itself, so that a reader
+ * can skip records. The features of the chunks are not written.
+ */
+public class BinaryFormatWriter implements Closeable, Flushable {
+
+    static final int MAGIC = 0x4b544b42; // "KTKB"
+    static final int VERSION = 1;
+    static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final DataOutputStream output;
+    private final int batchSize;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    private final DataOutputStream recordOutput = new DataOutputStream(records);
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordBody = new DataOutputStream(record);
+    private int recordSize = 0;
+
+    public BinaryFormatWriter(OutputStream output) throws IOException {
+        this(output, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a writer and writes the header of the format.
+     *
+     * @param output
+     *            the destination
+     * @param batchSize
+     *            the number of trees sharing a dictionary
+     * @throws IOException
+     *             if {@code output} fails to write
+     */
+    public BinaryFormatWriter(OutputStream output, int batchSize) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("invalid batch size: " + batchSize);
+        }
+        this.output = new DataOutputStream(new BufferedOutputStream(output));
+        this.batchSize = batchSize;
+        this.output.writeInt(MAGIC);
+        this.output.writeInt(VERSION);
+    }
+
+    /**
+     * Adds a tree to the current batch, and writes the batch if it is full.
+     *
+     * @param tree
+     *            the tree to be written
+     * @throws IOException
+     *             if the output fails to write
+     */
+    public void write(Tree tree) throws IOException {
+        record.reset();
+        OutputLayerType layer = tree.getOutputLayer();
+        recordBody.writeByte(layer == null ? -1 : layer.getValue());
+
+        List<Token> tokens = tree.getTokens();
+        recordBody.writeInt(tokens.size());
+        if (tokens.isEmpty()) {
+            recordBody.writeInt(id(tree.getSentence()));
+        }
+        for (Token token : tokens) {
+            recordBody.writeInt(id(token.getSurface()));
+        }
+        for (Token token : tokens) {
+            recordBody.writeInt(id(token.getFeature()));
+        }
+
+        List<Chunk> chunks = tree.getChunks();
+        recordBody.writeInt(chunks.size());
+        int tokenPos = 0;
+        for (Chunk chunk : chunks) {
+            recordBody.writeInt(tokenPos);
+            tokenPos += chunk.getTokenSize();
+        }
+        for (Chunk chunk : chunks) {
+            recordBody.writeInt(chunk.getLink());
+        }
+        for (Chunk chunk : chunks) {
+            recordBody.writeInt(chunk.getHeadPos());
+        }
+        for (Chunk chunk : chunks) {
+            recordBody.writeInt(chunk.getFuncPos());
+        }
+        for (Chunk chunk : chunks) {
+            recordBody.writeFloat((float) chunk.getScore());
+        }
+
+        recordOutput.writeInt(record.size());
+        record.writeTo(recordOutput);
+        if (++recordSize >= batchSize) {
+            writeBatch();
+        }
+    }
+
+    private int id(String s) {
+        Integer id = dictionary.get(s);
+        if (id == null) {
+            id = strings.size();
+            dictionary.put(s, id);
+            strings.add(s);
+        }
+        return id;
+    }
+
+    private void writeBatch() throws IOException {
+        if (recordSize == 0) {
+            return;
+        }
+        output.writeInt(recordSize);
+        output.writeInt(strings.size());
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        records.writeTo(output);
+
+        dictionary.clear();
+        strings.clear();
+        records.reset();
+        recordSize = 0;
+    }
+
+    /**
+     * Writes the current batch, even if it is not full, and flushes the output.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBatch();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        output.close();
+    }
+}
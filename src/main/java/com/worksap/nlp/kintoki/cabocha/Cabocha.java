@@ -19,38 +19,98 @@ package com.worksap.nlp.kintoki.cabocha;
 import com.worksap.nlp.kintoki.cabocha.util.Utils;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PrintStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 public class Cabocha {
 
+    /**
+     * The output of the command line. The results are encoded through a
+     * buffered writer, which reuses its buffers for all the sentences, or
+     * through a {@link BinaryFormatWriter} for the binary format. Stdout is
+     * flushed whenever no more input is ready, so that an interactive user or a
+     * process waiting for the result of a sentence gets it right away.
+     */
     static class FileStdoutStream implements Closeable {
-        PrintStream output;
+        private static final int BUFFER_SIZE = 1 << 16;
+
+        OutputStream stream;
+        Writer output;
+        BinaryFormatWriter binaryOutput;
         boolean isFile;
 
-        FileStdoutStream(String fileName) throws IOException {
+        FileStdoutStream(String fileName, boolean binary) throws IOException {
             if (Utils.check(fileName)) {
-                output = new PrintStream(fileName);
+                stream = new FileOutputStream(fileName);
                 isFile = true;
             } else {
-                output = System.out;
+                stream = System.out;
+            }
+            if (binary) {
+                binaryOutput = new BinaryFormatWriter(stream);
+            } else {
+                output = new BufferedWriter(new OutputStreamWriter(stream), BUFFER_SIZE);
+            }
+        }
+
+        void print(String x) throws IOException {
+            output.write(x);
+        }
+
+        void write(Tree tree) throws IOException {
+            binaryOutput.write(tree);
+        }
+
+        /**
+         * Flush the results written so far if the output is stdout. A file is
+         * flushed only when closed.
+         */
+        void flushIfStdout() throws IOException {
+            if (isFile) {
+                return;
+            }
+            if (binaryOutput != null) {
+                binaryOutput.flush();
+            } else {
+                output.flush();
             }
         }
 
-        void print(String x) {
-            output.print(x);
+        boolean isBinary() {
+            return binaryOutput != null;
+        }
+
+        Writer getWriter() {
+            return output;
         }
 
         @Override
-        public void close() {
+        public void close() throws IOException {
+            if (binaryOutput != null) {
+                binaryOutput.flush();
+            } else {
+                output.flush();
+            }
             if (isFile) {
-                output.close();
+                stream.close();
             }
         }
     }
@@ -58,7 +118,8 @@ public class Cabocha {
     static final Option[] longOptions = {
             new Option("output-format", 'f', 0, "TYPE",
                     "set output format style\n\t\t\t    " + "0 - tree(default)\n\t\t\t    " + "1 - lattice\n\t\t\t    "
-                            + "2 - tree + lattice\n\t\t\t    " + "3 - XML\n\t\t\t    " + "4 - CoNLL"),
+                            + "2 - tree + lattice\n\t\t\t    " + "3 - XML\n\t\t\t    " + "4 - CoNLL\n\t\t\t    "
+                            + "6 - binary"),
             new Option("input-layer", 'I', 0, "LAYER",
                     "set input layer\n\t\t\t    " + "0 - raw sentence layer(default)\n\t\t\t    "
                             + "1 - POS tagged layer\n\t\t\t    " + "2 - POS tagger and Chunked layer\n\t\t\t    "
@@ -70,10 +131,13 @@ public class Cabocha {
             new Option("chunker-model", 'M', null, "FILE", "use FILE as chunker model file"),
             new Option("rcfile", 'r', null, "FILE", "use FILE as resource file"),
             new Option("sudachi-dict", 'd', null, "DIR", "use DIR as sudachi dictionary directory"),
+            new Option("threads", 't', 1, "N", "use N threads for parsing(default 1)"),
             new Option("output", 'o', null, "FILE", "use FILE as output file"),
             new Option("version", 'v', null, null, "show the version and exit"),
             new Option("help", 'h', null, null, "show this help and exit"), };
 
+    private static final int REORDER_BUFFER_FACTOR = 4;
+
     private Parser parser = null;
 
     /**
@@ -167,29 +231,107 @@ public class Cabocha {
 
         int inputLayer = param.getInt(Param.INPUT_LAYER);
         List<String> rest = param.getRest();
+        int threads = parser.getThreads();
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
 
-        try (FileStdoutStream output = new FileStdoutStream(param.getString(Param.OUTPUT))) {
+        boolean binary = parser.getOutputFormat() == FormatType.FORMAT_BINARY;
+        try (FileStdoutStream output = new FileStdoutStream(param.getString(Param.OUTPUT), binary)) {
             if (rest.isEmpty()) {
-                run(parser, inputLayer, System.in, output);
+                run(parser, inputLayer, executor, threads, System.in, output);
             } else {
                 for (String inputFileName : rest) {
                     try (FileInputStream input = new FileInputStream(inputFileName)) {
-                        run(parser, inputLayer, input, output);
+                        run(parser, inputLayer, executor, threads, input, output);
                     }
                 }
             }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            parser.close();
         }
 
     }
 
-    private static void run(Parser parser, int inputLayer, InputStream input, FileStdoutStream output)
-            throws IOException {
+    private static void run(Parser parser, int inputLayer, ExecutorService executor, int threads, InputStream input,
+            FileStdoutStream output) throws IOException {
         try (InputStreamReader inputReader = new InputStreamReader(input);
                 BufferedReader reader = new BufferedReader(inputReader)) {
-            String sentence = null;
-            while ((sentence = readSentence(reader, inputLayer)) != null) {
-                output.print(parser.parseToString(sentence));
+            if (executor == null) {
+                String sentence = null;
+                while ((sentence = readSentence(reader, inputLayer)) != null) {
+                    if (output.isBinary()) {
+                        output.write(parser.parse(sentence));
+                    } else {
+                        parser.parseTo(sentence, output.getWriter());
+                    }
+                    if (!reader.ready()) {
+                        output.flushIfStdout();
+                    }
+                }
+            } else if (output.isBinary()) {
+                runConcurrently(inputLayer, executor, threads * REORDER_BUFFER_FACTOR, reader, parser::parse,
+                        output::write, output);
+            } else {
+                runConcurrently(inputLayer, executor, threads * REORDER_BUFFER_FACTOR, reader, parser::parseToString,
+                        output::print, output);
+            }
+        }
+    }
+
+    /**
+     * Parse sentences on the executor while reading ahead, and print the results
+     * in the input order. At most {@code bufferSize} sentences are read ahead of
+     * the oldest one not printed yet. Text results are rendered on the workers,
+     * so that the formatting is done in parallel as well. Before waiting for
+     * more input, all the pending results are printed.
+     */
+    private static <T> void runConcurrently(int inputLayer, ExecutorService executor, int bufferSize,
+            BufferedReader reader, Function<String, T> task, Sink<T> sink, FileStdoutStream output)
+            throws IOException {
+        Deque<Future<T>> pending = new ArrayDeque<>(bufferSize);
+        String sentence = null;
+        while (true) {
+            if (!pending.isEmpty() && !reader.ready()) {
+                while (!pending.isEmpty()) {
+                    sink.accept(await(pending.poll()));
+                }
+                output.flushIfStdout();
+            }
+            if ((sentence = readSentence(reader, inputLayer)) == null) {
+                break;
+            }
+            final String text = sentence;
+            pending.add(executor.submit(() -> task.apply(text)));
+            if (pending.size() >= bufferSize) {
+                sink.accept(await(pending.poll()));
+            }
+        }
+        while (!pending.isEmpty()) {
+            sink.accept(await(pending.poll()));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Sink<T> {
+        void accept(T result) throws IOException;
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while parsing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
             }
+            throw new IOException(cause);
         }
     }
 
@@ -16,6 +16,8 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
+import com.worksap.nlp.kintoki.cabocha.svm.SVMModel;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -29,6 +31,7 @@ public class Chunk {
     private List<Token> tokens = new ArrayList<>();
     private double score;
     private List<String> featureList = new ArrayList<>();
+    private ChunkInfo chunkInfo;
 
     public int getLink() {
         return link;
@@ -94,6 +97,20 @@ public class Chunk {
         return this.featureList.size();
     }
 
+    /**
+     * Returns the features resolved by {@link Selector#Selector(SVMModel)}.
+     *
+     * @return the resolved features, or null if the features are only given as
+     *         strings
+     */
+    public ChunkInfo getChunkInfo() {
+        return chunkInfo;
+    }
+
+    public void setChunkInfo(ChunkInfo chunkInfo) {
+        this.chunkInfo = chunkInfo;
+    }
+
     public int getTokenPos() {
         return tokenPos;
     }
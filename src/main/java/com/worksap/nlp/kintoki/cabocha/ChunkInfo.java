@@ -16,135 +16,115 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
-import java.util.ArrayList;
-import java.util.List;
-
+/**
+ * The features of a chunk resolved to the feature IDs of the parser model.
+ *
+ * <p>
+ * A chunk has a different set of features for each role it plays in the
+ * estimation of a dependency, which are kept in separate arrays.
+ */
 public class ChunkInfo {
 
-    private List<String> strStaticFeature = new ArrayList<>();
-    private List<String> strGapFeature = new ArrayList<>();
-    private List<String> strLeftContextFeature = new ArrayList<>();
-    private List<String> strRightContextFeature = new ArrayList<>();
-    private List<String> strChildFeature = new ArrayList<>();
-    private List<Integer> staticFeature = new ArrayList<>();
-    private List<Integer> dst1StaticFeature = new ArrayList<>();
-    private List<Integer> dst2StaticFeature = new ArrayList<>();
-    private List<Integer> leftContextFeature = new ArrayList<>();
-    private List<Integer> right1ContextFeature = new ArrayList<>();
-    private List<Integer> right2ContextFeature = new ArrayList<>();
-    private List<Integer> srcChildFeature = new ArrayList<>();
-    private List<Integer> dst1ChildFeature = new ArrayList<>();
-    private List<Integer> dst2ChildFeature = new ArrayList<>();
-
-    public List<String> getStrStaticFeature() {
-        return strStaticFeature;
-    }
-
-    public void setStrStaticFeature(List<String> strStaticFeature) {
-        this.strStaticFeature = strStaticFeature;
-    }
-
-    public List<String> getStrGapFeature() {
-        return strGapFeature;
-    }
-
-    public void setStrGapFeature(List<String> strGapFeature) {
-        this.strGapFeature = strGapFeature;
-    }
-
-    public List<String> getStrLeftContextFeature() {
-        return strLeftContextFeature;
-    }
-
-    public void setStrLeftContextFeature(List<String> strLeftContextFeature) {
-        this.strLeftContextFeature = strLeftContextFeature;
-    }
-
-    public List<String> getStrRightContextFeature() {
-        return strRightContextFeature;
-    }
-
-    public void setStrRightContextFeature(List<String> strRightContextFeature) {
-        this.strRightContextFeature = strRightContextFeature;
-    }
-
-    public List<String> getStrChildFeature() {
-        return strChildFeature;
-    }
-
-    public void setStrChildFeature(List<String> strChildFeature) {
-        this.strChildFeature = strChildFeature;
-    }
-
-    public List<Integer> getStaticFeature() {
-        return staticFeature;
-    }
-
-    public void setStaticFeature(List<Integer> staticFeature) {
-        this.staticFeature = staticFeature;
-    }
-
-    public List<Integer> getDst1StaticFeature() {
-        return dst1StaticFeature;
-    }
-
-    public void setDst1StaticFeature(List<Integer> dst1StaticFeature) {
-        this.dst1StaticFeature = dst1StaticFeature;
-    }
-
-    public List<Integer> getDst2StaticFeature() {
-        return dst2StaticFeature;
-    }
-
-    public void setDst2StaticFeature(List<Integer> dst2StaticFeature) {
-        this.dst2StaticFeature = dst2StaticFeature;
-    }
-
-    public List<Integer> getLeftContextFeature() {
-        return leftContextFeature;
-    }
-
-    public void setLeftContextFeature(List<Integer> leftContextFeature) {
+    /** No open or close bracket in the chunk */
+    public static final int BRACKET_NONE = 0;
+    /** The chunk has an open bracket */
+    public static final int BRACKET_OPEN = 1;
+    /** The chunk has a close bracket */
+    public static final int BRACKET_CLOSE = 2;
+
+    private final int[] srcStaticFeature;
+    private final int[] dstStaticFeature;
+    private final int[] leftContextFeature;
+    private final int[] rightContextFeature;
+    private final int[] gapFeature;
+    private final int bracketStatus;
+    private final int[] srcChildFeature;
+    private final int[] dstChildFeature;
+
+    ChunkInfo(int[] srcStaticFeature, int[] dstStaticFeature, int[] leftContextFeature, int[] rightContextFeature,
+            int[] gapFeature, int bracketStatus, int[] srcChildFeature, int[] dstChildFeature) {
+        this.srcStaticFeature = srcStaticFeature;
+        this.dstStaticFeature = dstStaticFeature;
         this.leftContextFeature = leftContextFeature;
+        this.rightContextFeature = rightContextFeature;
+        this.gapFeature = gapFeature;
+        this.bracketStatus = bracketStatus;
+        this.srcChildFeature = srcChildFeature;
+        this.dstChildFeature = dstChildFeature;
     }
 
-    public List<Integer> getRight1ContextFeature() {
-        return right1ContextFeature;
-    }
-
-    public void setRight1ContextFeature(List<Integer> right1ContextFeature) {
-        this.right1ContextFeature = right1ContextFeature;
+    /**
+     * Returns the static features used when the chunk is the source.
+     *
+     * @return the feature IDs
+     */
+    public int[] getSrcStaticFeature() {
+        return srcStaticFeature;
     }
 
-    public List<Integer> getRight2ContextFeature() {
-        return right2ContextFeature;
+    /**
+     * Returns the static features used when the chunk is the destination.
+     *
+     * @return the feature IDs
+     */
+    public int[] getDstStaticFeature() {
+        return dstStaticFeature;
     }
 
-    public void setRight2ContextFeature(List<Integer> right2ContextFeature) {
-        this.right2ContextFeature = right2ContextFeature;
+    /**
+     * Returns the context features used when the next chunk is the source.
+     *
+     * @return the feature IDs
+     */
+    public int[] getLeftContextFeature() {
+        return leftContextFeature;
     }
 
-    public List<Integer> getSrcChildFeature() {
+    /**
+     * Returns the context features used when the previous chunk is the
+     * destination.
+     *
+     * @return the feature IDs
+     */
+    public int[] getRightContextFeature() {
+        return rightContextFeature;
+    }
+
+    /**
+     * Returns the features used when the chunk is between the source and the
+     * destination, except the bracket features.
+     *
+     * @return the feature IDs
+     */
+    public int[] getGapFeature() {
+        return gapFeature;
+    }
+
+    /**
+     * Returns the brackets in the chunk.
+     *
+     * @return the bitwise OR of {@link #BRACKET_OPEN} and {@link #BRACKET_CLOSE}
+     */
+    public int getBracketStatus() {
+        return bracketStatus;
+    }
+
+    /**
+     * Returns the dynamic features used when the chunk is a child of the source.
+     *
+     * @return the feature IDs
+     */
+    public int[] getSrcChildFeature() {
         return srcChildFeature;
     }
 
-    public void setSrcChildFeature(List<Integer> srcChildFeature) {
-        this.srcChildFeature = srcChildFeature;
-    }
-
-    public List<Integer> getDst1ChildFeature() {
-        return dst1ChildFeature;
-    }
-
-    public void setDst1ChildFeature(List<Integer> dst1ChildFeature) {
-        this.dst1ChildFeature = dst1ChildFeature;
-    }
-
-    public List<Integer> getDst2ChildFeature() {
-        return dst2ChildFeature;
-    }
-
-    public void setDst2ChildFeature(List<Integer> dst2ChildFeature) {
-        this.dst2ChildFeature = dst2ChildFeature;
+    /**
+     * Returns the dynamic features used when the chunk is a child of the
+     * destination.
+     *
+     * @return the feature IDs
+     */
+    public int[] getDstChildFeature() {
+        return dstChildFeature;
     }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import com.worksap.nlp.kintoki.cabocha.svm.SVMModel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Resolves the features of a chunk to the feature IDs of the parser model and
+ * builds a {@link ChunkInfo}.
+ *
+ * <p>
+ * A feature is given as its type, which is the first letter of the feature
+ * string emitted by {@link Selector}, and its body, which is the rest of the
+ * string. Not thread-safe.
+ */
+class ChunkInfoBuilder implements Selector.FeatureCollector {
+
+    private static final int SRC_STATIC = 0;
+    private static final int DST_STATIC = 1;
+    private static final int LEFT_CONTEXT = 2;
+    private static final int RIGHT_CONTEXT = 3;
+    private static final int GAP = 4;
+    private static final int SRC_CHILD = 5;
+    private static final int DST_CHILD = 6;
+    private static final int ROLE_SIZE = 7;
+
+    // the prefixes of the keys in the model for each role
+    private static final String[] ROLE_PREFIXES = { "S", "D", "L", "R", "G", "a", "A" };
+    private static final int[] STATIC_ROLES = { SRC_STATIC, DST_STATIC };
+    private static final int[] LEFT_CONTEXT_ROLES = { LEFT_CONTEXT };
+    private static final int[] RIGHT_CONTEXT_ROLES = { RIGHT_CONTEXT };
+    private static final int[] GAP_ROLES = { GAP };
+    private static final int[] CHILD_ROLES = { SRC_CHILD, DST_CHILD };
+
+    private final SVMModel model;
+    private final Map<String, int[]> nameNodes;
+    private final Function<String, int[]> walkName = this::walkName;
+    private final int[] roleNodes = new int[ROLE_SIZE];
+    private final int[][] ids = new int[ROLE_SIZE][16];
+    private final int[] sizes = new int[ROLE_SIZE];
+    private int bracketStatus = ChunkInfo.BRACKET_NONE;
+
+    ChunkInfoBuilder(SVMModel model) {
+        this(model, new HashMap<>());
+    }
+
+    /**
+     * Create a builder which shares the walks of the feature names with other
+     * builders of the same model.
+     *
+     * @param model
+     *            the parser model
+     * @param nameNodes
+     *            the nodes of the model reached by the prefixes of each feature
+     *            name, which must be thread-safe if shared between threads
+     */
+    ChunkInfoBuilder(SVMModel model, Map<String, int[]> nameNodes) {
+        this.model = model;
+        this.nameNodes = nameNodes;
+        for (int role = 0; role < ROLE_SIZE; role++) {
+            roleNodes[role] = model.traverse(SVMModel.ROOT_NODE, ROLE_PREFIXES[role]);
+        }
+    }
+
+    /**
+     * Add a feature in the string form, such as {@code FHS:value}.
+     *
+     * @param feature
+     *            the feature string
+     */
+    void add(String feature) {
+        char type = feature.charAt(0);
+        if (type == 'G') {
+            if (feature.equals("GOB:1")) {
+                bracketStatus |= ChunkInfo.BRACKET_OPEN;
+                return;
+            } else if (feature.equals("GCB:1")) {
+                bracketStatus |= ChunkInfo.BRACKET_CLOSE;
+                return;
+            }
+        }
+        int[] roles = roles(type);
+        if (roles == null) {
+            throw new IllegalArgumentException("Unknown feature: " + feature);
+        }
+        for (int role : roles) {
+            addId(role, model.idAt(model.traverse(roleNodes[role], feature, 1, feature.length())));
+        }
+    }
+
+    @Override
+    public void add(char type, String name, String value) {
+        if (type == 'G' && value.equals("1")) {
+            if (name.equals("OB")) {
+                bracketStatus |= ChunkInfo.BRACKET_OPEN;
+                return;
+            } else if (name.equals("CB")) {
+                bracketStatus |= ChunkInfo.BRACKET_CLOSE;
+                return;
+            }
+        }
+        int[] roles = roles(type);
+        if (roles == null) {
+            throw new IllegalArgumentException("Unknown feature: " + type + name + ":" + value);
+        }
+        // the prefix "<role><name>:" is walked once for each name
+        int[] nodes = nameNodes.computeIfAbsent(name, walkName);
+        for (int role : roles) {
+            addId(role, model.idAt(model.traverse(nodes[role], value)));
+        }
+    }
+
+    private static int[] roles(char type) {
+        switch (type) {
+        case 'F':
+            return STATIC_ROLES;
+        case 'L':
+            return LEFT_CONTEXT_ROLES;
+        case 'R':
+            return RIGHT_CONTEXT_ROLES;
+        case 'G':
+            return GAP_ROLES;
+        case 'A':
+            return CHILD_ROLES;
+        default:
+            return null;
+        }
+    }
+
+    private int[] walkName(String name) {
+        int[] nodes = new int[ROLE_SIZE];
+        for (int role = 0; role < ROLE_SIZE; role++) {
+            nodes[role] = model.traverse(model.traverse(roleNodes[role], name), ":");
+        }
+        return nodes;
+    }
+
+    private void addId(int role, int id) {
+        if (id == -1) {
+            return;
+        }
+        if (sizes[role] == ids[role].length) {
+            ids[role] = Arrays.copyOf(ids[role], sizes[role] * 2);
+        }
+        ids[role][sizes[role]++] = id;
+    }
+
+    /**
+     * Build the features added so far, and reset this builder.
+     *
+     * @return the resolved features
+     */
+    ChunkInfo build() {
+        ChunkInfo chunkInfo = new ChunkInfo(take(SRC_STATIC), take(DST_STATIC), take(LEFT_CONTEXT),
+                take(RIGHT_CONTEXT), take(GAP), bracketStatus, take(SRC_CHILD), take(DST_CHILD));
+        bracketStatus = ChunkInfo.BRACKET_NONE;
+        return chunkInfo;
+    }
+
+    private int[] take(int role) {
+        int[] array = Arrays.copyOf(ids[role], sizes[role]);
+        sizes[role] = 0;
+        return array;
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
+import com.worksap.nlp.kintoki.cabocha.crf.Model;
 import com.worksap.nlp.kintoki.cabocha.crf.Tagger;
 
 import java.io.IOException;
@@ -26,18 +27,32 @@ public class Chunker implements Analyzer {
 
     private static final double CRF_COST_FACTOR = 1.0;
 
-    private Tagger tagger;
+    private ModelRegistry.Handle<Model> model;
+    private ThreadLocal<Tagger> tagger;
     private int beginLabel;
 
     @Override
     public void open(Param param) throws IOException {
         String path = param.getString(Param.CHUNKER_MODEL);
-        tagger = Tagger.openBinaryModel(path, CRF_COST_FACTOR);
-        beginLabel = tagger.ynames().indexOf("B");
+        boolean mmap = param.getBoolean(Param.MMAP_MODEL);
+        model = Model.acquireBinaryModel(path, CRF_COST_FACTOR, mmap);
+        tagger = ThreadLocal.withInitial(model.get()::createTagger);
+        beginLabel = model.get().ynames().indexOf("B");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (model != null) {
+            model.close();
+            model = null;
+        }
     }
 
     @Override
     public void parse(Tree tree) {
+        Tagger tagger = this.tagger.get();
+        tagger.clear(); // discard what a failed parse may have left
+
         int tokenSize = tree.getTokenSize();
         for (int i = 0; i < tokenSize; i++) {
             tagger.add(tree.token(i).getNormalizedSurface(), getPos(tree.token(i).getFeatureList()));
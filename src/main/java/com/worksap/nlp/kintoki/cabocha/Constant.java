@@ -27,6 +27,7 @@ public class Constant {
     public static final int CABOCHA_FORMAT_XML = 3;
     public static final int CABOCHA_FORMAT_CONLL = 4;
     public static final int CABOCHA_FORMAT_NONE = 5;
+    public static final int CABOCHA_FORMAT_BINARY = 6;
 
     public static final int CABOCHA_INPUT_RAW_SENTENCE = 0;
     public static final int CABOCHA_INPUT_POS = 1;
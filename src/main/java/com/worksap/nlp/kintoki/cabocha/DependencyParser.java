@@ -20,20 +20,52 @@ import com.worksap.nlp.kintoki.cabocha.svm.SVMModel;
 import com.worksap.nlp.kintoki.cabocha.svm.FastSVMModel;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Shift-reduce dependency parser. Once opened it only holds the read-only SVM
+ * model; the state of a parse lives in a {@link DependencyParserData} which
+ * each thread reuses for its sentences, so one instance can be shared between
+ * threads.
+ *
+ * <p>
+ * The features of the chunks are taken from {@link Chunk#getChunkInfo()} if
+ * the {@link Selector} has already resolved them, and from the feature strings
+ * otherwise.
+ */
 public class DependencyParser implements Analyzer {
 
+    private static final String[] DIST_FEATURES = { "DIST:1", "DIST:2-5", "DIST:6-" };
+    private static final String[] BRACKET_FEATURES = { "GNB:1", "GOB:1", "GCB:1", "GBB:1" };
+
+    private ModelRegistry.Handle<SVMModel> model = null;
     private SVMModel svmModel = null;
-    private DependencyParserData data = null;
+    private int[] distFeatureIds;
+    private int[] bracketFeatureIds;
+    private volatile ParserMetrics metrics = null;
+    private final ThreadLocal<DependencyParserData> workspace = ThreadLocal.withInitial(DependencyParserData::new);
 
     @Override
     public void open(Param param) throws IOException {
         String modelFile = param.getString(Param.PARSER_MODEL);
-        svmModel = FastSVMModel.openBinaryModel(modelFile);
+        boolean mmap = param.getBoolean(Param.MMAP_MODEL);
+        model = ModelRegistry.getDefault().acquire(mmap ? "svm-mmap" : "svm", modelFile,
+                p -> FastSVMModel.openBinaryModel(p, mmap));
+        svmModel = model.get();
+        distFeatureIds = Stream.of(DIST_FEATURES).mapToInt(svmModel::id).toArray();
+        bracketFeatureIds = Stream.of(BRACKET_FEATURES).mapToInt(svmModel::id).toArray();
+    }
+
+    SVMModel getModel() {
+        return svmModel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (model != null) {
+            model.close();
+            model = null;
+        }
     }
 
     @Override
@@ -51,56 +83,55 @@ public class DependencyParser implements Analyzer {
         }
 
         // make features
-        build(tree);
+        DependencyParserData data = build(tree);
+
+        parseShiftReduce(tree, data);
 
-        parseShiftReduce(tree);
+        ParserMetrics m = metrics;
+        if (m != null) {
+            m.recordEstimateCount(data.getEstimateCount());
+        }
     }
 
-    private void build(Tree tree) {
-        data = new DependencyParserData();
+    @Override
+    public void setMetrics(ParserMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private DependencyParserData build(Tree tree) {
+        DependencyParserData data = workspace.get();
+        data.init(tree.getChunkSize());
+        ChunkInfoBuilder builder = null;
 
         // collect all features from each chunk.
         for (int i = 0; i < tree.getChunkSize(); ++i) {
             Chunk chunk = tree.chunk(i);
-            ChunkInfo chunkInfo = new ChunkInfo();
-            for (int k = 0; k < chunk.getFeatureListSize(); ++k) {
-                String feature = chunk.getFeatureList().get(k);
-                switch (feature.charAt(0)) {
-                case 'F':
-                    chunkInfo.getStrStaticFeature().add(feature);
-                    break;
-                case 'L':
-                    chunkInfo.getStrLeftContextFeature().add(feature);
-                    break;
-                case 'R':
-                    chunkInfo.getStrRightContextFeature().add(feature);
-                    break;
-                case 'G':
-                    chunkInfo.getStrGapFeature().add(feature);
-                    break;
-                case 'A':
-                    chunkInfo.getStrChildFeature().add(feature);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown feature: " + feature);
+            ChunkInfo chunkInfo = chunk.getChunkInfo();
+            if (chunkInfo == null) {
+                // features given as strings, such as the input of the selection layer
+                if (builder == null) {
+                    builder = new ChunkInfoBuilder(svmModel);
+                }
+                for (String feature : chunk.getFeatureList()) {
+                    builder.add(feature);
                 }
+                chunkInfo = builder.build();
             }
             data.getChunkInfo().add(chunkInfo);
         }
+        return data;
     }
 
-    private boolean parseShiftReduce(Tree tree) {
+    private boolean parseShiftReduce(Tree tree, DependencyParserData data) {
         int size = tree.getChunkSize();
 
         Hypothesis hypo = data.getHypothesis();
-        hypo.init(size);
 
-        Deque<Integer> agenda = new ArrayDeque<>(size);
         double score = 0.0;
-        agenda.push(0);
+        data.pushAgenda(0);
 
         for (int dst = 1; dst < size; ++dst) {
-            int src = myPop(agenda);
+            int src = data.popAgenda();
 
             // |is_fake_link| is used for partial training, where
             // not all dependency relations are specified in the training phase.
@@ -110,198 +141,86 @@ public class DependencyParser implements Analyzer {
             boolean isFakeLink = (dst != size - 1 && tree.chunk(src).getLink() == -1);
 
             // if agenda is empty, src == -1.
-            while (src != -1 && (dst == size - 1 || isFakeLink || (score = estimate(tree, src, dst)) > 0)) {
-                hypo.getHead().set(src, dst);
-                hypo.getScore().set(src, score);
+            while (src != -1 && (dst == size - 1 || isFakeLink || (score = estimate(tree, data, src, dst)) > 0)) {
+                hypo.setHead(src, dst);
+                hypo.setScore(src, score);
                 // store children for dynamic_features
                 if (!isFakeLink) {
-                    hypo.getChildren().get(dst).add(src);
+                    hypo.addChild(dst, src);
                 }
 
-                src = myPop(agenda);
+                src = data.popAgenda();
             }
             if (src != -1) {
-                agenda.push(src);
+                data.pushAgenda(src);
             }
-            agenda.push(dst);
+            data.pushAgenda(dst);
         }
 
         for (int src = 0; src < size; ++src) {
             Chunk chunk = tree.chunk(src);
-            chunk.setLink(hypo.getHead().get(src));
-            chunk.setScore(hypo.getScore().get(src));
+            chunk.setLink(hypo.getHead(src));
+            chunk.setScore(hypo.getScore(src));
         }
 
         return true;
     }
 
-    private double estimate(Tree tree, int src, int dst) {
+    private double estimate(Tree tree, DependencyParserData data, int src, int dst) {
         Hypothesis hypo = data.getHypothesis();
 
-        List<Integer> fp = data.getFp();
-
-        setDistanceFeature(src, dst);
-        setStaticFeature(src);
-        setDst1StaticFeature(dst);
+        setDistanceFeature(data, src, dst);
+        data.addFp(data.chunkInfo(src).getSrcStaticFeature());
+        data.addFp(data.chunkInfo(dst).getDstStaticFeature());
         if (src > 0) {
-            setLeftContextFeature(src);
+            data.addFp(data.chunkInfo(src - 1).getLeftContextFeature());
         }
         if (dst < tree.getChunkSize() - 1) {
-            setRight1ContextFeature(dst);
+            data.addFp(data.chunkInfo(dst + 1).getRightContextFeature());
+        }
+        for (int child = hypo.getFirstChild(src); child != -1; child = hypo.getNextSibling(child)) {
+            data.addFp(data.chunkInfo(child).getSrcChildFeature());
         }
-        setSrcChildFeature(src, hypo);
-        setDst1ChildFeature(dst, hypo);
-        setGapFeature(src, dst);
+        for (int child = hypo.getFirstChild(dst); child != -1; child = hypo.getNextSibling(child)) {
+            data.addFp(data.chunkInfo(child).getDstChildFeature());
+        }
+        setGapFeature(data, src, dst);
 
-        fp = fp.stream().sorted().distinct().collect(Collectors.toList());
-        double score = svmModel.classify(fp);
-        data.getFp().clear();
+        int size = data.sortFp();
+        double score = svmModel.classify(data.getFp(), size);
+        data.clearFp();
+        data.incrementEstimateCount();
         return score;
     }
 
-    private void setDistanceFeature(int src, int dst) {
+    private void setDistanceFeature(DependencyParserData data, int src, int dst) {
         // distance features
         int dist = dst - src;
         if (dist == 1) {
-            addFeature("DIST:1");
+            addFeature(data, distFeatureIds[0]);
         } else if (dist >= 2 && dist <= 5) {
-            addFeature("DIST:2-5");
+            addFeature(data, distFeatureIds[1]);
         } else {
-            addFeature("DIST:6-");
-        }
-    }
-
-    private void setStaticFeature(int src) {
-        ChunkInfo chunkInfo = data.chunkInfo(src);
-        if (chunkInfo.getStaticFeature().isEmpty()) {
-            for (int i = 0; i < chunkInfo.getStrStaticFeature().size(); ++i) {
-                String feature = chunkInfo.getStrStaticFeature().get(i).substring(1);
-                chunkInfo.getStrStaticFeature().set(i, "S" + feature);
-                addFeature2(chunkInfo.getStrStaticFeature().get(i), chunkInfo.getStaticFeature());
-            }
+            addFeature(data, distFeatureIds[2]);
         }
-        copyFeature(chunkInfo.getStaticFeature());
     }
 
-    private void setDst1StaticFeature(int dst) {
-        ChunkInfo chunkInfo = data.chunkInfo(dst);
-        if (chunkInfo.getDst1StaticFeature().isEmpty()) {
-            for (int i = 0; i < chunkInfo.getStrStaticFeature().size(); ++i) {
-                String feature = chunkInfo.getStrStaticFeature().get(i).substring(1);
-                chunkInfo.getStrStaticFeature().set(i, "D" + feature);
-                addFeature2(chunkInfo.getStrStaticFeature().get(i), chunkInfo.getDst1StaticFeature());
-            }
-        }
-        copyFeature(chunkInfo.getDst1StaticFeature());
-    }
-
-    private void setLeftContextFeature(int src) {
-        ChunkInfo chunkInfo = data.chunkInfo(src - 1);
-        if (chunkInfo.getLeftContextFeature().isEmpty()) {
-            for (int i = 0; i < chunkInfo.getStrLeftContextFeature().size(); ++i) {
-                addFeature2(chunkInfo.getStrLeftContextFeature().get(i), chunkInfo.getLeftContextFeature());
-            }
-        }
-        copyFeature(chunkInfo.getLeftContextFeature());
-    }
-
-    private void setRight1ContextFeature(int dst) {
-        ChunkInfo chunkInfo = data.chunkInfo(dst + 1);
-        if (chunkInfo.getRight1ContextFeature().isEmpty()) {
-            for (int i = 0; i < chunkInfo.getStrRightContextFeature().size(); ++i) {
-                addFeature2(chunkInfo.getStrRightContextFeature().get(i), chunkInfo.getRight1ContextFeature());
-            }
-        }
-        copyFeature(chunkInfo.getRight1ContextFeature());
-    }
-
-    private void setSrcChildFeature(int src, Hypothesis hypo) {
-        for (int i = 0; i < hypo.getChildren().get(src).size(); ++i) {
-            int child = hypo.getChildren().get(src).get(i);
-            ChunkInfo chunkInfo = data.chunkInfo(child);
-            if (chunkInfo.getSrcChildFeature().isEmpty()) {
-                for (int j = 0; j < chunkInfo.getStrChildFeature().size(); ++j) {
-                    String feature = chunkInfo.getStrChildFeature().get(j).substring(1);
-                    chunkInfo.getStrChildFeature().set(j, "a" + feature);
-                    addFeature2(chunkInfo.getStrChildFeature().get(j), chunkInfo.getSrcChildFeature());
-                }
-            }
-            copyFeature(chunkInfo.getSrcChildFeature());
-        }
-    }
-
-    private void setDst1ChildFeature(int dst, Hypothesis hypo) {
-        for (int i = 0; i < hypo.getChildren().get(dst).size(); ++i) {
-            int child = hypo.getChildren().get(dst).get(i);
-            ChunkInfo chunkInfo = data.chunkInfo(child);
-            if (chunkInfo.getDst1ChildFeature().isEmpty()) {
-                for (int j = 0; j < chunkInfo.getStrChildFeature().size(); ++j) {
-                    String feature = chunkInfo.getStrChildFeature().get(j).substring(1);
-                    chunkInfo.getStrChildFeature().set(j, "A" + feature);
-                    addFeature2(chunkInfo.getStrChildFeature().get(j), chunkInfo.getDst1ChildFeature());
-                }
-            }
-            copyFeature(chunkInfo.getDst1ChildFeature());
-        }
-    }
-
-    private void setGapFeature(int src, int dst) {
+    private void setGapFeature(DependencyParserData data, int src, int dst) {
         // gap features
-        int bracketStatus = 0;
+        int bracketStatus = ChunkInfo.BRACKET_NONE;
         for (int k = src + 1; k <= dst - 1; ++k) {
             ChunkInfo chunkInfo = data.chunkInfo(k);
-            for (int i = 0; i < chunkInfo.getStrGapFeature().size(); ++i) {
-                String gapFeature = chunkInfo.getStrGapFeature().get(i);
-                if (gapFeature.equals("GOB:1")) {
-                    bracketStatus |= 1;
-                } else if (gapFeature.equals("GCB:1")) {
-                    bracketStatus |= 2;
-                } else {
-                    addFeature(gapFeature);
-                }
-            }
-        }
-
-        // bracket status
-        switch (bracketStatus) {
-        case 0:
-            addFeature("GNB:1");
-            break; // nothing
-        case 1:
-            addFeature("GOB:1");
-            break; // open only
-        case 2:
-            addFeature("GCB:1");
-            break; // close only
-        default:
-            addFeature("GBB:1");
-            break; // both
-        }
-    }
-
-    private int myPop(Deque<Integer> agenda) {
-        if (agenda.isEmpty()) {
-            return -1;
-        } else {
-            return agenda.pop();
+            data.addFp(chunkInfo.getGapFeature());
+            bracketStatus |= chunkInfo.getBracketStatus();
         }
-    }
 
-    private void addFeature(String key) {
-        int id = this.svmModel.id(key);
-        if (id != -1) {
-            this.data.getFp().add(id);
-        }
+        // bracket status: nothing, open only, close only, or both
+        addFeature(data, bracketFeatureIds[bracketStatus]);
     }
 
-    private void addFeature2(String key, List<Integer> array) {
-        int id = this.svmModel.id(key);
+    private void addFeature(DependencyParserData data, int id) {
         if (id != -1) {
-            array.add(id);
+            data.addFp(id);
         }
     }
-
-    private void copyFeature(List<Integer> feature) {
-        this.data.getFp().addAll(feature);
-    }
 }
@@ -17,20 +17,38 @@
 package com.worksap.nlp.kintoki.cabocha;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class DependencyParserData {
 
     private List<ChunkInfo> chunkInfo = new ArrayList<>();
-    private List<Integer> fp = new ArrayList<>();
+    private int[] fp = new int[256];
+    private int fpSize = 0;
     private Hypothesis hypothesis = new Hypothesis();
+    private int[] agenda = new int[64];
+    private int agendaSize = 0;
+    private int estimateCount = 0;
 
-    public List<ChunkInfo> getChunkInfo() {
-        return chunkInfo;
+    /**
+     * Reset the buffers for a new sentence.
+     *
+     * @param size
+     *            the number of the chunks of the sentence
+     */
+    void init(int size) {
+        chunkInfo.clear();
+        hypothesis.init(size);
+        if (agenda.length < size) {
+            agenda = new int[Math.max(size, agenda.length * 2)];
+        }
+        agendaSize = 0;
+        fpSize = 0;
+        estimateCount = 0;
     }
 
-    public List<Integer> getFp() {
-        return fp;
+    public List<ChunkInfo> getChunkInfo() {
+        return chunkInfo;
     }
 
     public ChunkInfo chunkInfo(int index) {
@@ -41,4 +59,79 @@ public class DependencyParserData {
         return hypothesis;
     }
 
+    /**
+     * Returns the buffer of the feature IDs of the current estimation. Only the
+     * first {@link #getFpSize()} elements are valid.
+     *
+     * @return the buffer
+     */
+    public int[] getFp() {
+        return fp;
+    }
+
+    public int getFpSize() {
+        return fpSize;
+    }
+
+    void pushAgenda(int index) {
+        agenda[agendaSize++] = index;
+    }
+
+    /**
+     * Pop a chunk from the agenda.
+     *
+     * @return the index of the chunk, or -1 if the agenda is empty
+     */
+    int popAgenda() {
+        return agendaSize == 0 ? -1 : agenda[--agendaSize];
+    }
+
+    void addFp(int id) {
+        if (fpSize == fp.length) {
+            fp = Arrays.copyOf(fp, fpSize * 2);
+        }
+        fp[fpSize++] = id;
+    }
+
+    void addFp(int[] ids) {
+        if (fpSize + ids.length > fp.length) {
+            fp = Arrays.copyOf(fp, Math.max(fpSize * 2, fpSize + ids.length));
+        }
+        System.arraycopy(ids, 0, fp, fpSize, ids.length);
+        fpSize += ids.length;
+    }
+
+    /**
+     * Sort the feature IDs and remove the duplicates.
+     *
+     * @return the number of the unique feature IDs
+     */
+    int sortFp() {
+        Arrays.sort(fp, 0, fpSize);
+        int size = 0;
+        for (int i = 0; i < fpSize; i++) {
+            if (size == 0 || fp[size - 1] != fp[i]) {
+                fp[size++] = fp[i];
+            }
+        }
+        fpSize = size;
+        return size;
+    }
+
+    void clearFp() {
+        fpSize = 0;
+    }
+
+    void incrementEstimateCount() {
+        estimateCount++;
+    }
+
+    /**
+     * Returns the number of the estimations done for this sentence.
+     *
+     * @return the number of the estimations
+     */
+    public int getEstimateCount() {
+        return estimateCount;
+    }
 }
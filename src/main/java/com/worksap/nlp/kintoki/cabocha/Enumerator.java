@@ -19,7 +19,8 @@ package com.worksap.nlp.kintoki.cabocha;
 enum FormatType {
     FORMAT_TREE(Constant.CABOCHA_FORMAT_TREE), FORMAT_LATTICE(Constant.CABOCHA_FORMAT_LATTICE), FORMAT_TREE_LATTICE(
             Constant.CABOCHA_FORMAT_TREE_LATTICE), FORMAT_XML(Constant.CABOCHA_FORMAT_XML), FORMAT_CONLL(
-                    Constant.CABOCHA_FORMAT_CONLL), FORMAT_NONE(Constant.CABOCHA_FORMAT_NONE);
+                    Constant.CABOCHA_FORMAT_CONLL), FORMAT_NONE(Constant.CABOCHA_FORMAT_NONE), FORMAT_BINARY(
+                            Constant.CABOCHA_FORMAT_BINARY);
 
     private final int value;
 
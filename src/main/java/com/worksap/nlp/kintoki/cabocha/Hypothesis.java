@@ -16,50 +16,96 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+/**
+ * The dependencies found so far in a sentence. The buffers are kept for the
+ * following sentences and only grow.
+ *
+ * <p>
+ * The children of a chunk are kept as a linked list through
+ * {@link #getFirstChild(int)} and {@link #getNextSibling(int)}, which needs no
+ * more than one slot per chunk because a chunk has at most one head.
+ */
 public class Hypothesis {
 
-    private List<Integer> head;
-    private List<Double> score;
-    private List<List<Integer>> children;
+    private int size = 0;
+    private int[] head = new int[0];
+    private double[] score = new double[0];
+    private int[] firstChild = new int[0];
+    private int[] nextSibling = new int[0];
     double hscore;
 
     public void init(int size) {
-        head = new ArrayList<>();
-        score = new ArrayList<>();
-        children = new ArrayList<>();
-        hscore = 0.0;
-        for (int i = 0; i < size; ++i) {
-            head.add(-1);
-            score.add(0.0);
-            children.add(new ArrayList<>());
+        if (head.length < size) {
+            int capacity = Math.max(size, head.length * 2);
+            head = new int[capacity];
+            score = new double[capacity];
+            firstChild = new int[capacity];
+            nextSibling = new int[capacity];
         }
+        this.size = size;
+        hscore = 0.0;
+        Arrays.fill(head, 0, size, -1);
+        Arrays.fill(score, 0, size, 0.0);
+        Arrays.fill(firstChild, 0, size, -1);
+        Arrays.fill(nextSibling, 0, size, -1);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getHead(int index) {
+        return head[index];
     }
 
-    public List<Integer> getHead() {
-        return head;
+    public void setHead(int index, int head) {
+        this.head[index] = head;
     }
 
-    public void setHead(List<Integer> head) {
-        this.head = head;
+    public double getScore(int index) {
+        return score[index];
     }
 
-    public List<Double> getScore() {
-        return score;
+    public void setScore(int index, double score) {
+        this.score[index] = score;
     }
 
-    public void setScore(List<Double> score) {
-        this.score = score;
+    /**
+     * Add a child to a chunk.
+     *
+     * @param parent
+     *            the index of the head chunk
+     * @param child
+     *            the index of the modifier chunk, which has not been added to
+     *            any chunk yet
+     */
+    public void addChild(int parent, int child) {
+        nextSibling[child] = firstChild[parent];
+        firstChild[parent] = child;
     }
 
-    public List<List<Integer>> getChildren() {
-        return children;
+    /**
+     * Returns the child of a chunk added last.
+     *
+     * @param parent
+     *            the index of the head chunk
+     * @return the index of the child, or -1 if the chunk has no child
+     */
+    public int getFirstChild(int parent) {
+        return firstChild[parent];
     }
 
-    public void setChildren(List<List<Integer>> children) {
-        this.children = children;
+    /**
+     * Returns the child of the same head added before the given one.
+     *
+     * @param child
+     *            the index of a child
+     * @return the index of the next child, or -1 if there is no more child
+     */
+    public int getNextSibling(int child) {
+        return nextSibling[child];
     }
 
     public double getHscore() {
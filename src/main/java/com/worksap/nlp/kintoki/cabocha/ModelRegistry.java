@@ -0,0 +1,313 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A registry of the models shared by the analyzers.
+ *
+ * <p>
+ * A model is identified by its type, the canonical path of its file and the
+ * last modified time of the file, so a model file replaced on disk is loaded
+ * again instead of being served from the registry. Each
+ * {@link #acquire(String, String, Loader)} must be paired with a
+ * {@link Handle#close()}.
+ *
+ * <p>
+ * A model whose last handle is closed is kept idle in the registry, so that a
+ * parser opened again, for example one parser per request, does not load the
+ * model files again. The least recently released idle models beyond the limit
+ * given to the constructor are evicted, and {@link #evictIdle()} evicts all of
+ * them. An evicted model is closed if it is {@link AutoCloseable}.
+ */
+public class ModelRegistry {
+
+    private static final int DEFAULT_MAX_IDLE = 16;
+
+    private static final ModelRegistry DEFAULT = new ModelRegistry();
+
+    /**
+     * Loads a model from a path.
+     *
+     * @param <T>
+     *            the type of the model
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load(String path) throws IOException;
+    }
+
+    /**
+     * A reference to a model in the registry.
+     *
+     * @param <T>
+     *            the type of the model
+     */
+    public static final class Handle<T> implements Closeable {
+        private final ModelRegistry registry;
+        private final Entry entry;
+        private final T model;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        private Handle(ModelRegistry registry, Entry entry, T model) {
+            this.registry = registry;
+            this.entry = entry;
+            this.model = model;
+        }
+
+        public T get() {
+            return model;
+        }
+
+        /**
+         * Release the model. Closing a handle more than once has no effect.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed.compareAndSet(false, true)) {
+                registry.release(entry);
+            }
+        }
+    }
+
+    private static final class Key {
+        final String type;
+        final Path path;
+        final long lastModified;
+
+        Key(String type, Path path, long lastModified) {
+            this.type = type;
+            this.path = path;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return type.equals(other.type) && path.equals(other.path) && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, path, lastModified);
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        int refCount = 0;
+        Object model = null;
+
+        Entry(Key key) {
+            this.key = key;
+        }
+    }
+
+    private final Map<Key, Entry> entries = new HashMap<>();
+    // the entries whose reference count is zero, in the order of the release
+    private final Map<Key, Entry> idle = new LinkedHashMap<>();
+    private final int maxIdle;
+
+    /**
+     * Create a registry which keeps at most 16 idle models.
+     */
+    public ModelRegistry() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Create a registry.
+     *
+     * @param maxIdle
+     *            the maximum number of the idle models, or 0 to evict a model
+     *            as soon as its last handle is closed
+     * @throws IllegalArgumentException
+     *             if {@code maxIdle} is negative
+     */
+    public ModelRegistry(int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle must not be negative");
+        }
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns the registry shared in this JVM.
+     *
+     * @return the registry
+     */
+    public static ModelRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Acquire a model, loading it unless it is already in the registry.
+     *
+     * @param <T>
+     *            the type of the model
+     * @param type
+     *            the type of the model, which must identify the loader and its
+     *            options; models of different types are loaded separately even
+     *            from the same file
+     * @param path
+     *            the path of the model file or directory
+     * @param loader
+     *            the loader used if the model is not in the registry
+     * @return the handle to the model
+     * @throws IOException
+     *             if the model cannot be loaded
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Handle<T> acquire(String type, String path, Loader<T> loader) throws IOException {
+        Key key = createKey(type, path);
+        Entry entry;
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                // the idle models of the previous versions of the file are not
+                // acquired any more
+                for (Iterator<Entry> it = idle.values().iterator(); it.hasNext();) {
+                    Entry e = it.next();
+                    if (e.key.type.equals(type) && e.key.path.equals(key.path)) {
+                        it.remove();
+                        entries.remove(e.key);
+                        evicted.add(e);
+                    }
+                }
+                entry = new Entry(key);
+                entries.put(key, entry);
+            } else {
+                idle.remove(key);
+            }
+            entry.refCount++;
+        }
+        closeModels(evicted);
+
+        // loads outside of the registry lock, so that other models can be
+        // acquired meanwhile
+        try {
+            synchronized (entry) {
+                if (entry.model == null) {
+                    entry.model = Objects.requireNonNull(loader.load(path));
+                }
+                return new Handle<>(this, entry, (T) entry.model);
+            }
+        } catch (IOException | RuntimeException e) {
+            release(entry);
+            throw e;
+        }
+    }
+
+    private static Key createKey(String type, String path) throws IOException {
+        Path p = Paths.get(path).toAbsolutePath().normalize();
+        if (!Files.exists(p)) {
+            // left to the loader, which may fall back to another location
+            return new Key(type, p, 0L);
+        }
+        return new Key(type, p.toRealPath(), Files.getLastModifiedTime(p).toMillis());
+    }
+
+    private void release(Entry entry) throws IOException {
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (--entry.refCount > 0) {
+                return;
+            }
+            if (entry.model == null) {
+                // failed to load
+                entries.remove(entry.key, entry);
+                return;
+            }
+            idle.put(entry.key, entry);
+            Iterator<Entry> it = idle.values().iterator();
+            while (idle.size() > maxIdle) {
+                Entry eldest = it.next();
+                it.remove();
+                entries.remove(eldest.key);
+                evicted.add(eldest);
+            }
+        }
+        closeModels(evicted);
+    }
+
+    /**
+     * Evict all the idle models, that is the models without any open handle.
+     *
+     * @throws IOException
+     *             if a model cannot be closed
+     */
+    public void evictIdle() throws IOException {
+        List<Entry> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<>(idle.values());
+            idle.clear();
+            entries.values().removeAll(evicted);
+        }
+        closeModels(evicted);
+    }
+
+    private static void closeModels(List<Entry> evicted) throws IOException {
+        IOException error = null;
+        for (Entry entry : evicted) {
+            Object model;
+            synchronized (entry) {
+                model = entry.model;
+                entry.model = null;
+            }
+            if (!(model instanceof AutoCloseable)) {
+                continue;
+            }
+            try {
+                ((AutoCloseable) model).close();
+            } catch (Exception e) {
+                // closes the rest anyway, and reports the first error
+                if (error == null) {
+                    error = e instanceof IOException ? (IOException) e : new IOException(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Returns the number of the models in the registry, including the idle ones.
+     *
+     * @return the number of the models
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -16,24 +16,113 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
+import com.worksap.nlp.kintoki.cabocha.util.Utils;
+import com.worksap.nlp.sudachi.Dictionary;
 import com.worksap.nlp.sudachi.Morpheme;
+import com.worksap.nlp.sudachi.Tokenizer.SplitMode;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
+/**
+ * Morphological analysis by Sudachi. The dictionary is shared, and each thread
+ * has its own tokenizer, together with the cache of the feature strings of the
+ * parts of speech.
+ *
+ * <p>
+ * The split mode is set by {@link Param#SUDACHI_SPLIT_MODE}. The system
+ * dictionary and the comma-separated user dictionaries of the Sudachi settings
+ * are replaced by {@link Param#SUDACHI_SYSTEM_DICT} and
+ * {@link Param#SUDACHI_USER_DICT} if given. The analyzers differing only in
+ * the split mode share the dictionary, while each combination of the system
+ * and user dictionaries loads all of them, including the system dictionary.
+ */
 public class MorphAnalyzer implements Analyzer {
 
-    private SudachiTokenizer tokenizer;
+    private ModelRegistry.Handle<Dictionary> dictionary;
+    private ThreadLocal<SudachiTokenizer> tokenizer;
 
     @Override
     public void open(Param param) throws IOException {
-        this.tokenizer = SudachiTokenizer.getInstance(param.getString(Param.SUDACHI_DICT));
+        String dictPath = param.getString(Param.SUDACHI_DICT);
+        String systemDict = trimToNull(param.getString(Param.SUDACHI_SYSTEM_DICT));
+        List<String> userDicts = splitPaths(param.getString(Param.SUDACHI_USER_DICT));
+        SplitMode mode = SudachiTokenizer.parseSplitMode(param.getString(Param.SUDACHI_SPLIT_MODE));
+
+        // the split mode is given to each call, so the configurations which
+        // differ only in the mode share the dictionary. The registry checks the
+        // modification of dictPath only, so the overriding dictionaries are
+        // identified by their modification times as well.
+        StringBuilder type = new StringBuilder("sudachi");
+        if (systemDict != null) {
+            type.append(";system=").append(describe(dictPath, systemDict));
+        }
+        if (userDicts != null) {
+            type.append(";user=");
+            for (String userDict : userDicts) {
+                type.append(describe(dictPath, userDict)).append(File.pathSeparatorChar);
+            }
+        }
+        dictionary = ModelRegistry.getDefault().acquire(type.toString(), dictPath,
+                p -> SudachiTokenizer.loadDictionary(p, systemDict, userDicts));
+        Dictionary dic = dictionary.get();
+        this.tokenizer = ThreadLocal.withInitial(() -> new SudachiTokenizer(dic, mode));
+    }
+
+    private static String trimToNull(String value) {
+        return Utils.check(value) ? value.trim() : null;
+    }
+
+    private static List<String> splitPaths(String value) {
+        if (!Utils.check(value)) {
+            return null;
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private static String describe(String dictPath, String path) throws IOException {
+        Path p = Paths.get(dictPath).resolve(path).toAbsolutePath().normalize();
+        long lastModified = Files.exists(p) ? Files.getLastModifiedTime(p).toMillis() : 0L;
+        return p.toString() + '@' + lastModified;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (dictionary != null) {
+            dictionary.close();
+            dictionary = null;
+        }
     }
 
     @Override
     public void parse(Tree tree) {
-        List<Morpheme> morphemes = tokenizer.parse(tree.getSentence());
-        tree.read(morphemes);
+        SudachiTokenizer t = tokenizer.get();
+        List<Morpheme> morphemes = t.parse(tree.getSentence());
+        tree.read(morphemes, t.getPartOfSpeechCache());
+        tree.setOutputLayer(OutputLayerType.OUTPUT_POS);
+    }
+
+    /**
+     * Returns the tokenizer of the current thread, which splits documents into
+     * sentences.
+     */
+    SudachiTokenizer getTokenizer() {
+        return tokenizer.get();
+    }
+
+    /**
+     * Fills a tree with the morphemes of a sentence, as {@link #parse(Tree)}
+     * does with those of its sentence.
+     */
+    void read(Tree tree, List<Morpheme> morphemes) {
+        tree.read(morphemes, tokenizer.get().getPartOfSpeechCache());
         tree.setOutputLayer(OutputLayerType.OUTPUT_POS);
     }
 }
@@ -38,15 +38,23 @@ public class Param {
     public static final String PARSER_MODEL = "parser-model";
     public static final String CHUNKER_MODEL = "chunker-model";
     public static final String SUDACHI_DICT = "sudachi-dict";
+    public static final String SUDACHI_SPLIT_MODE = "sudachi-split-mode";
+    public static final String SUDACHI_SYSTEM_DICT = "sudachi-system-dict";
+    public static final String SUDACHI_USER_DICT = "sudachi-user-dict";
     public static final String OUTPUT_FORMAT = "output-format";
     public static final String RC_FILE = "rcfile";
     public static final String OUTPUT = "output";
+    public static final String MMAP_MODEL = "mmap-model";
+    public static final String THREADS = "threads";
+    public static final String CACHE_SIZE = "cache-size";
+    public static final String RESOLVE_FEATURES = "resolve-features";
 
     static final Pattern LONG_OPTION_PATTERN = Pattern.compile("--(\\S+?)(?:=(\\S+))?");
     static final Pattern SHORT_OPTION_PATTERN = Pattern.compile("-([\\S&&[^-]])(\\S+)?");
 
     private static List<String> keyList = Arrays.asList(INPUT_LAYER, OUTPUT_LAYER, PARSER_MODEL, CHUNKER_MODEL,
-            SUDACHI_DICT, OUTPUT_FORMAT);
+            SUDACHI_DICT, SUDACHI_SPLIT_MODE, SUDACHI_SYSTEM_DICT, SUDACHI_USER_DICT, OUTPUT_FORMAT, MMAP_MODEL,
+            THREADS, CACHE_SIZE, RESOLVE_FEATURES);
 
     private Map<String, Object> conf = new HashMap<>();
     private List<String> rest = new ArrayList<>();
@@ -75,6 +83,20 @@ public class Param {
         }
     }
 
+    public boolean getBoolean(String key) {
+        Object value = conf.get(key);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Integer) {
+            return (Integer) value != 0;
+        } else if (value instanceof String) {
+            String str = ((String) value).trim();
+            return str.equals("1") || str.equalsIgnoreCase("true");
+        } else {
+            return false;
+        }
+    }
+
     public void set(String key, Object value) {
         conf.put(key, value);
     }
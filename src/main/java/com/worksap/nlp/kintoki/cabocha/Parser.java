@@ -16,17 +16,31 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
+import com.worksap.nlp.sudachi.Morpheme;
+
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public class Parser {
+public class Parser implements Closeable {
 
     private List<Analyzer> analyzerList = new ArrayList<>();
     private FormatType outputFormat;
     private InputLayerType inputLayer;
     private OutputLayerType outputLayer;
     private Param param;
+    private int threads;
+    private ForkJoinPool pool = null;
+    private volatile ParserMetrics metrics = null;
+    private SentenceCache cache = null;
+    private boolean resolveFeatures;
 
     /**
      * Create a new instance of Parser class.
@@ -125,9 +139,25 @@ public class Parser {
         case Constant.CABOCHA_FORMAT_NONE:
             this.outputFormat = FormatType.FORMAT_NONE;
             break;
+        case Constant.CABOCHA_FORMAT_BINARY:
+            this.outputFormat = FormatType.FORMAT_BINARY;
+            break;
         default:
             throw new IllegalArgumentException("unknown output format: " + param.getInt(Param.OUTPUT_FORMAT) + "\n");
         }
+        this.threads = param.getInt(Param.THREADS);
+        if (this.threads < 0) {
+            throw new IllegalArgumentException("invalid number of threads: " + this.threads + "\n");
+        } else if (this.threads == 0) {
+            this.threads = Runtime.getRuntime().availableProcessors();
+        }
+        int cacheSize = param.getInt(Param.CACHE_SIZE);
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("invalid cache size: " + cacheSize + "\n");
+        } else if (cacheSize > 0) {
+            this.cache = new SentenceCache(cacheSize);
+        }
+        this.resolveFeatures = param.getBoolean(Param.RESOLVE_FEATURES);
     }
 
     /**
@@ -157,8 +187,7 @@ public class Parser {
             case OUTPUT_DEP:
                 pushAnalyzer(new MorphAnalyzer());
                 pushAnalyzer(new Chunker());
-                pushAnalyzer(new Selector());
-                pushAnalyzer(new DependencyParser());
+                pushSelectorAndDependencyParser();
                 break;
             default:
                 break;
@@ -180,8 +209,7 @@ public class Parser {
                 break;
             case OUTPUT_DEP:
                 pushAnalyzer(new Chunker());
-                pushAnalyzer(new Selector());
-                pushAnalyzer(new DependencyParser());
+                pushSelectorAndDependencyParser();
                 break;
             default:
                 break;
@@ -199,8 +227,7 @@ public class Parser {
                 pushAnalyzer(new Selector());
                 break;
             case OUTPUT_DEP:
-                pushAnalyzer(new Selector());
-                pushAnalyzer(new DependencyParser());
+                pushSelectorAndDependencyParser();
                 break;
             default:
                 break;
@@ -231,9 +258,20 @@ public class Parser {
 
     private void pushAnalyzer(Analyzer analyzer) throws IOException {
         analyzer.open(param);
+        analyzer.setMetrics(metrics);
         this.analyzerList.add(analyzer);
     }
 
+    private void pushSelectorAndDependencyParser() throws IOException {
+        DependencyParser dependencyParser = new DependencyParser();
+        dependencyParser.open(param);
+        // with resolve-features, the selector resolves the features with the parser
+        // model directly and the chunks are left without the feature strings
+        pushAnalyzer(resolveFeatures ? new Selector(dependencyParser.getModel()) : new Selector());
+        dependencyParser.setMetrics(metrics);
+        this.analyzerList.add(dependencyParser);
+    }
+
     /**
      * Parse a given sentence.
      *
@@ -243,10 +281,32 @@ public class Parser {
      *         return null
      */
     public Tree parse(Tree tree) {
+        ParserMetrics m = metrics;
+        return parse(tree, 0, m, m == null ? 0L : System.nanoTime());
+    }
+
+    /**
+     * Runs the analyzers from {@code first}, and records the time since
+     * {@code start} if {@code m} is not null.
+     */
+    private Tree parse(Tree tree, int first, ParserMetrics m, long start) {
         tree.setOutputLayer(this.outputLayer);
-        for (Analyzer analyzer : analyzerList) {
+        if (m == null) {
+            for (int i = first; i < analyzerList.size(); i++) {
+                analyzerList.get(i).parse(tree);
+            }
+            return tree;
+        }
+
+        long last = System.nanoTime();
+        for (int i = first; i < analyzerList.size(); i++) {
+            Analyzer analyzer = analyzerList.get(i);
             analyzer.parse(tree);
+            long now = System.nanoTime();
+            m.recordStageTime(analyzer, now - last);
+            last = now;
         }
+        m.recordSentence(tree, last - start);
         return tree;
     }
 
@@ -258,6 +318,10 @@ public class Parser {
      * @return a tree object will be returned
      */
     public Tree parse(String text) {
+        return parse(read(text));
+    }
+
+    Tree read(String text) {
         Tree tree = new Tree();
 
         try {
@@ -266,20 +330,253 @@ public class Parser {
             throw new IllegalArgumentException("Format error: [" + text + "] ", e);
         }
 
-        return parse(tree);
+        return tree;
     }
 
     /**
      * Parse a given sentence.
      *
+     * <p>
+     * If {@link Param#CACHE_SIZE} is positive, the results are cached and a
+     * sentence seen recently is not parsed again.
+     *
      * @param sent
      *            the sentence to be parsed
      * @return a string will be returned if the parsing is success, otherwise return
      *         null
+     * @throws IllegalStateException
+     *             if the output format is the binary format, which is written by
+     *             {@link BinaryFormatWriter}
      */
     public String parseToString(String sent) {
-        Tree tree = parse(sent);
-        return tree.toString(outputFormat);
+        checkTextFormat();
+        if (cache == null || sent == null) {
+            return parse(sent).toString(outputFormat);
+        }
+        String result = cache.get(sent);
+        if (result == null) {
+            result = parse(sent).toString(outputFormat);
+            cache.put(sent, result);
+        }
+        return result;
+    }
+
+    /**
+     * Parse a given sentence, and write the result to {@code out}.
+     *
+     * <p>
+     * Unlike {@link #parseToString(String)}, the result is written directly
+     * without building a string, unless the cache is enabled.
+     *
+     * @param sent
+     *            the sentence to be parsed
+     * @param out
+     *            the destination of the result
+     * @throws IOException
+     *             if {@code out} fails to append
+     * @throws IllegalStateException
+     *             if the output format is the binary format, which is written by
+     *             {@link BinaryFormatWriter}
+     */
+    public void parseTo(String sent, Appendable out) throws IOException {
+        checkTextFormat();
+        if (cache == null || sent == null) {
+            parse(sent).writeTo(out, outputFormat);
+        } else {
+            out.append(parseToString(sent));
+        }
+    }
+
+    private void checkTextFormat() {
+        if (outputFormat == FormatType.FORMAT_BINARY) {
+            throw new IllegalStateException("the binary format must be written by BinaryFormatWriter");
+        }
+    }
+
+    /**
+     * Parse a document, which Sudachi splits into sentences.
+     *
+     * <p>
+     * The document is tokenized at once, and the morphemes of each sentence are
+     * passed to the chunker and the dependency parser directly. The input layer
+     * must be the raw sentence layer.
+     *
+     * <p>
+     * With {@link #setMetrics(ParserMetrics)}, the tokenization done before the
+     * first sentence is returned, which is the whole document for a string, is
+     * recorded as the {@link MorphAnalyzer} stage time of the first sentence.
+     *
+     * @param document
+     *            the document to be parsed
+     * @return the trees of the sentences
+     */
+    public List<Tree> parseDocument(String document) {
+        MorphAnalyzer morphAnalyzer = getMorphAnalyzer();
+        ParserMetrics m = metrics;
+        long start = m == null ? 0L : System.nanoTime();
+        return parseSentences(morphAnalyzer, morphAnalyzer.getTokenizer().parseSentences(document), m, start);
+    }
+
+    /**
+     * Parse a document read from {@code input}, which Sudachi splits into
+     * sentences.
+     *
+     * @param input
+     *            the document to be parsed
+     * @return the trees of the sentences
+     * @throws IOException
+     *             if {@code input} fails to read
+     * @see #parseDocument(String)
+     */
+    public List<Tree> parseDocument(Reader input) throws IOException {
+        MorphAnalyzer morphAnalyzer = getMorphAnalyzer();
+        ParserMetrics m = metrics;
+        long start = m == null ? 0L : System.nanoTime();
+        return parseSentences(morphAnalyzer, morphAnalyzer.getTokenizer().parseSentences(input), m, start);
+    }
+
+    private MorphAnalyzer getMorphAnalyzer() {
+        if (inputLayer != InputLayerType.INPUT_RAW_SENTENCE || analyzerList.isEmpty()) {
+            throw new IllegalStateException("documents require the raw sentence input layer");
+        }
+        return (MorphAnalyzer) analyzerList.get(0);
     }
 
+    /**
+     * Parses the tokenized sentences. {@code start} is the time when the
+     * tokenization began, so that the time spent before the first sentence is
+     * counted in it.
+     */
+    private List<Tree> parseSentences(MorphAnalyzer morphAnalyzer, Iterable<? extends List<Morpheme>> sentences,
+            ParserMetrics m, long start) {
+        List<Tree> trees = new ArrayList<>();
+        Iterator<? extends List<Morpheme>> iterator = sentences.iterator();
+        long sentenceStart = start;
+        while (iterator.hasNext()) {
+            Tree tree = new Tree();
+            morphAnalyzer.read(tree, iterator.next());
+            if (m != null) {
+                m.recordStageTime(morphAnalyzer, System.nanoTime() - sentenceStart);
+            }
+            trees.add(parse(tree, 1, m, sentenceStart));
+            // the next sentence is tokenized in hasNext() or next()
+            sentenceStart = m == null ? 0L : System.nanoTime();
+        }
+        return trees;
+    }
+
+    /**
+     * Parse given sentences concurrently.
+     *
+     * <p>
+     * The sentences are parsed by the worker threads of this parser, which share
+     * the loaded models. The number of the workers is given by
+     * {@link Param#THREADS}.
+     *
+     * @param sentences
+     *            the sentences to be parsed
+     * @return the list of trees in the order of the sentences
+     */
+    public List<Tree> parseAll(List<String> sentences) {
+        return parseAll(sentences.stream());
+    }
+
+    /**
+     * Parse given sentences concurrently.
+     *
+     * @param sentences
+     *            the sentences to be parsed
+     * @return the list of trees in the order of the sentences
+     * @see #parseAll(List)
+     */
+    public List<Tree> parseAll(Stream<String> sentences) {
+        return getPool().submit(() -> sentences.parallel().map(this::parse).collect(Collectors.toList())).join();
+    }
+
+    /**
+     * Set the metrics to record the statistics of the following parses. Metrics
+     * are disabled by default, and the parses are not timed then.
+     *
+     * @param metrics
+     *            the metrics, or {@code null} to disable them
+     */
+    public void setMetrics(ParserMetrics metrics) {
+        this.metrics = metrics;
+        for (Analyzer analyzer : analyzerList) {
+            analyzer.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Returns the metrics set by {@link #setMetrics(ParserMetrics)}.
+     *
+     * @return the metrics, or {@code null} if disabled
+     */
+    public ParserMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the cache of {@link #parseToString(String)}, whose counters tell the
+     * hit rate.
+     *
+     * @return the cache, or {@code null} if disabled
+     */
+    public SentenceCache getCache() {
+        return cache;
+    }
+
+    List<Analyzer> getAnalyzers() {
+        return Collections.unmodifiableList(analyzerList);
+    }
+
+    OutputLayerType getOutputLayer() {
+        return outputLayer;
+    }
+
+    FormatType getOutputFormat() {
+        return outputFormat;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+
+    /**
+     * Stop the worker threads of {@link #parseAll(List)}, and release the models
+     * of the analyzers. The parser must not be used after closed.
+     *
+     * @throws IOException
+     *             if a model cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        IOException error = null;
+        for (Analyzer analyzer : analyzerList) {
+            try {
+                analyzer.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        analyzerList.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
 }
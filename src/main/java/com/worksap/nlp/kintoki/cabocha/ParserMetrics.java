@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import com.worksap.nlp.kintoki.cabocha.util.Histogram;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency and size statistics of a {@link Parser}.
+ *
+ * <p>
+ * Set an instance with {@link Parser#setMetrics(ParserMetrics)} to record
+ * every parsed sentence. The values are recorded without locks, so one
+ * instance can be shared by the threads of {@link Parser#parseAll(java.util.List)}
+ * and {@link Pipeline}.
+ */
+public class ParserMetrics {
+
+    private final Map<String, Histogram> stageTimes = new ConcurrentHashMap<>();
+    private final Histogram totalTime = new Histogram();
+    private final Histogram sentenceLength = new Histogram();
+    private final Histogram chunkCount = new Histogram();
+    private final Histogram estimateCount = new Histogram();
+
+    void recordStageTime(Analyzer analyzer, long nanos) {
+        stageTimes.computeIfAbsent(analyzer.getClass().getSimpleName(), k -> new Histogram()).record(nanos);
+    }
+
+    void recordSentence(Tree tree, long nanos) {
+        totalTime.record(nanos);
+        int length = 0;
+        for (Token token : tree.getTokens()) {
+            length += token.getSurface().length();
+        }
+        sentenceLength.record(tree.isEmpty() ? tree.sentenceSize() : length);
+        chunkCount.record(tree.getChunkSize());
+    }
+
+    void recordEstimateCount(int count) {
+        estimateCount.record(count);
+    }
+
+    /**
+     * Take a snapshot of the statistics recorded so far.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        Map<String, Histogram.Snapshot> stages = new LinkedHashMap<>();
+        stageTimes.forEach((name, histogram) -> stages.put(name, histogram.snapshot()));
+        return new Snapshot(stages, totalTime.snapshot(), sentenceLength.snapshot(), chunkCount.snapshot(),
+                estimateCount.snapshot());
+    }
+
+    /**
+     * The statistics of a {@link ParserMetrics} at some point. The times are in
+     * nanoseconds.
+     */
+    public static class Snapshot {
+        private final Map<String, Histogram.Snapshot> stageTimes;
+        private final Histogram.Snapshot totalTime;
+        private final Histogram.Snapshot sentenceLength;
+        private final Histogram.Snapshot chunkCount;
+        private final Histogram.Snapshot estimateCount;
+
+        Snapshot(Map<String, Histogram.Snapshot> stageTimes, Histogram.Snapshot totalTime,
+                Histogram.Snapshot sentenceLength, Histogram.Snapshot chunkCount, Histogram.Snapshot estimateCount) {
+            this.stageTimes = Collections.unmodifiableMap(stageTimes);
+            this.totalTime = totalTime;
+            this.sentenceLength = sentenceLength;
+            this.chunkCount = chunkCount;
+            this.estimateCount = estimateCount;
+        }
+
+        /**
+         * Returns the time spent in each analyzer per sentence.
+         *
+         * @return the map from the simple class names of the analyzers
+         */
+        public Map<String, Histogram.Snapshot> getStageTimes() {
+            return stageTimes;
+        }
+
+        /**
+         * Returns the time spent in all analyzers per sentence.
+         *
+         * @return the histogram
+         */
+        public Histogram.Snapshot getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * Returns the number of characters of each sentence.
+         *
+         * @return the histogram
+         */
+        public Histogram.Snapshot getSentenceLength() {
+            return sentenceLength;
+        }
+
+        /**
+         * Returns the number of chunks of each sentence.
+         *
+         * @return the histogram
+         */
+        public Histogram.Snapshot getChunkCount() {
+            return chunkCount;
+        }
+
+        /**
+         * Returns the number of SVM estimations of each sentence parsed by
+         * {@link DependencyParser}.
+         *
+         * @return the histogram
+         */
+        public Histogram.Snapshot getEstimateCount() {
+            return estimateCount;
+        }
+
+        /**
+         * Returns the number of sentences per second over the total time spent in
+         * the analyzers.
+         *
+         * @return the throughput, or 0 if nothing is recorded
+         */
+        public double getThroughput() {
+            long sum = totalTime.getSum();
+            return sum == 0 ? 0.0 : totalTime.getCount() * 1e9 / sum;
+        }
+    }
+}
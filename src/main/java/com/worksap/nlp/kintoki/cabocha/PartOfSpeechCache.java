@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import com.worksap.nlp.sudachi.Morpheme;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The feature strings of the parts of speech of a Sudachi dictionary, by the
+ * part-of-speech ID. The joined feature string and the feature list are built
+ * once per part of speech instead of once per token.
+ *
+ * <p>
+ * An instance is not thread-safe; each {@link SudachiTokenizer} has its own.
+ */
+final class PartOfSpeechCache {
+
+    static final class Entry {
+        final String pos;
+        final String feature;
+        final List<String> featureList;
+
+        Entry(List<String> partOfSpeech) {
+            this.featureList = Collections.unmodifiableList(new ArrayList<>(partOfSpeech));
+            this.pos = featureList.get(0);
+            this.feature = String.join(",", featureList);
+        }
+    }
+
+    private Entry[] entries = new Entry[256];
+
+    Entry get(Morpheme morpheme) {
+        int id = morpheme.partOfSpeechId();
+        if (id < 0) {
+            return new Entry(morpheme.partOfSpeech());
+        }
+        if (id >= entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(id + 1, entries.length * 2));
+        }
+        Entry entry = entries[id];
+        if (entry == null) {
+            entry = new Entry(morpheme.partOfSpeech());
+            entries[id] = entry;
+        }
+        return entry;
+    }
+}
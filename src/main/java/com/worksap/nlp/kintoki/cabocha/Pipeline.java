@@ -0,0 +1,270 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the analyzers of a {@link Parser} as a pipeline.
+ *
+ * <p>
+ * Each analyzer is a stage with its own worker threads, and the stages are
+ * connected by bounded queues, so that for example the tokenization of a
+ * sentence overlaps the dependency parsing of the previous one. The trees are
+ * returned by {@link #take()} in the order the sentences were given to
+ * {@link #put(String)}.
+ *
+ * <p>
+ * Sentences should be put by one thread and taken by another one. A thread
+ * which only puts blocks once the pipeline is full.
+ */
+public class Pipeline implements Closeable {
+
+    private static final int DEFAULT_QUEUE_SIZE = 16;
+
+    private static class Item {
+        final long id;
+        final Tree tree;
+        Throwable error;
+        long nanos = 0;
+
+        Item(long id, Tree tree, Throwable error) {
+            this.id = id;
+            this.tree = tree;
+            this.error = error;
+        }
+    }
+
+    private final Parser parser;
+    private final List<BlockingQueue<Item>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Semaphore capacity;
+    private final Object putLock = new Object();
+    private final Object takeLock = new Object();
+    private final Map<Long, Item> reorderBuffer = new HashMap<>();
+    private long nextPutId = 0;
+    private long nextTakeId = 0;
+
+    /**
+     * Create a pipeline with one thread per stage.
+     *
+     * @param parser
+     *            the opened parser whose analyzers are the stages
+     */
+    public Pipeline(Parser parser) {
+        this(parser, fill(parser, 1), fill(parser, DEFAULT_QUEUE_SIZE));
+    }
+
+    /**
+     * Create a pipeline.
+     *
+     * @param parser
+     *            the opened parser whose analyzers are the stages
+     * @param threads
+     *            the number of the worker threads of each stage
+     * @param queueSizes
+     *            the capacity of the input queue of each stage
+     * @throws IllegalArgumentException
+     *             if the lengths of the arrays are not the number of the stages,
+     *             or a value is not positive
+     */
+    public Pipeline(Parser parser, int[] threads, int[] queueSizes) {
+        List<Analyzer> analyzers = parser.getAnalyzers();
+        if (threads.length != analyzers.size() || queueSizes.length != analyzers.size()) {
+            throw new IllegalArgumentException("the pipeline has " + analyzers.size() + " stages");
+        }
+        if (Arrays.stream(threads).anyMatch(n -> n <= 0) || Arrays.stream(queueSizes).anyMatch(n -> n <= 0)) {
+            throw new IllegalArgumentException("the number of threads and the queue size must be positive");
+        }
+
+        this.parser = parser;
+        // bounds the sentences in the pipeline, including the ones waiting in the
+        // unbounded output queue and reorder buffer
+        int permits = Arrays.stream(threads).sum() + Arrays.stream(queueSizes).sum();
+        this.capacity = new Semaphore(permits);
+
+        for (int size : queueSizes) {
+            queues.add(new ArrayBlockingQueue<>(size));
+        }
+        queues.add(new LinkedBlockingQueue<>());
+
+        for (int stage = 0; stage < analyzers.size(); stage++) {
+            for (int i = 0; i < threads[stage]; i++) {
+                Thread worker = new Thread(new Worker(analyzers.get(stage), queues.get(stage), queues.get(stage + 1),
+                        stage == analyzers.size() - 1),
+                        "kintoki-pipeline-" + stage + "-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+            }
+        }
+        workers.forEach(Thread::start);
+    }
+
+    private static int[] fill(Parser parser, int value) {
+        int[] values = new int[parser.getAnalyzers().size()];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    /**
+     * Returns the number of the stages, that is the number of the analyzers.
+     *
+     * @return the number of the stages
+     */
+    public int getStageSize() {
+        return queues.size() - 1;
+    }
+
+    /**
+     * Put a sentence into the pipeline. This method blocks while the pipeline is
+     * full.
+     *
+     * @param text
+     *            the sentence to be parsed
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void put(String text) throws InterruptedException {
+        Tree tree = null;
+        RuntimeException error = null;
+        try {
+            tree = parser.read(text);
+            tree.setOutputLayer(parser.getOutputLayer());
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        synchronized (putLock) {
+            capacity.acquire();
+            Item item = new Item(nextPutId++, tree, error);
+            // a sentence with an error skips the analyzers
+            queues.get(error == null ? 0 : getStageSize()).put(item);
+        }
+    }
+
+    /**
+     * Take the next parsed tree in the input order. This method blocks until the
+     * tree is available.
+     *
+     * @return the parsed tree
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     * @throws RuntimeException
+     *             the exception thrown while reading or parsing the sentence,
+     *             for example {@link IllegalArgumentException} for a format
+     *             error
+     * @throws Error
+     *             the error thrown by an analyzer, which is rethrown here
+     *             instead of killing its worker thread
+     */
+    public Tree take() throws InterruptedException {
+        Item item;
+        synchronized (takeLock) {
+            BlockingQueue<Item> output = queues.get(getStageSize());
+            item = reorderBuffer.remove(nextTakeId);
+            while (item == null) {
+                Item next = output.take();
+                if (next.id == nextTakeId) {
+                    item = next;
+                } else {
+                    reorderBuffer.put(next.id, next);
+                }
+            }
+            nextTakeId++;
+        }
+        capacity.release();
+
+        if (item.error instanceof RuntimeException) {
+            throw (RuntimeException) item.error;
+        } else if (item.error instanceof Error) {
+            throw (Error) item.error;
+        } else if (item.error != null) {
+            throw new IllegalStateException(item.error);
+        }
+        return item.tree;
+    }
+
+    /**
+     * Stop the worker threads. The sentences remaining in the pipeline are
+     * discarded.
+     */
+    @Override
+    public void close() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    private class Worker implements Runnable {
+        private final Analyzer analyzer;
+        private final BlockingQueue<Item> input;
+        private final BlockingQueue<Item> output;
+        private final boolean last;
+
+        Worker(Analyzer analyzer, BlockingQueue<Item> input, BlockingQueue<Item> output, boolean last) {
+            this.analyzer = analyzer;
+            this.input = input;
+            this.output = output;
+            this.last = last;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Item item = input.take();
+                    if (item.error == null) {
+                        try {
+                            parse(item);
+                        } catch (Throwable e) {
+                            // keep the worker alive, otherwise take() would wait forever
+                            item.error = e;
+                        }
+                    }
+                    output.put(item);
+                }
+            } catch (InterruptedException e) {
+                // closed
+            }
+        }
+
+        private void parse(Item item) {
+            ParserMetrics metrics = parser.getMetrics();
+            if (metrics == null) {
+                analyzer.parse(item.tree);
+                return;
+            }
+
+            long start = System.nanoTime();
+            analyzer.parse(item.tree);
+            long nanos = System.nanoTime() - start;
+            metrics.recordStageTime(analyzer, nanos);
+            // the total is the time spent in the stages, not including the queues
+            item.nanos += nanos;
+            if (last) {
+                metrics.recordSentence(item.tree, item.nanos);
+            }
+        }
+    }
+}
@@ -16,15 +16,49 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
+import com.worksap.nlp.kintoki.cabocha.svm.SVMModel;
 import com.worksap.nlp.kintoki.cabocha.util.PropertyUtil;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Selector implements Analyzer {
 
+    /**
+     * Receives the selected features of a chunk. A feature is written as
+     * {@code type + name + ":" + value} in the string form.
+     */
+    interface FeatureCollector {
+        void add(char type, String name, String value);
+    }
+
+    private static final int POS_SIZE = 2;
+    // the names of the static features of the head, functional, leftmost and
+    // rightmost tokens
+    private static final int HEAD = 0;
+    private static final int FUNC = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+    private static final String[] HEADERS = { "H", "F", "L", "R" };
+    private static final String[] SURFACE_NAMES = new String[HEADERS.length];
+    private static final String[] CFORM_NAMES = new String[HEADERS.length];
+    private static final String[][] POS_NAMES = new String[HEADERS.length][POS_SIZE];
+    static {
+        for (int h = 0; h < HEADERS.length; h++) {
+            SURFACE_NAMES[h] = HEADERS[h] + "S";
+            CFORM_NAMES[h] = HEADERS[h] + "F";
+            for (int k = 0; k < POS_SIZE; k++) {
+                POS_NAMES[h][k] = HEADERS[h] + "P" + k;
+            }
+        }
+    }
+
+    private final SVMModel model;
+    private final Map<String, int[]> nameNodes = new ConcurrentHashMap<>();
+
     private PatternMatcher patKutouten;
     private PatternMatcher patOpenBracket;
     private PatternMatcher patCloseBracket;
@@ -38,8 +72,28 @@ public class Selector implements Analyzer {
     private PatternMatcher patUnidicHead2;
     private PatternMatcher patUnidicHeadPre;
 
+    /**
+     * Create a selector which stores the features as strings in the feature list
+     * of each chunk.
+     */
     public Selector() {
+        this(null);
+    }
+
+    /**
+     * Create a selector which resolves the features to the feature IDs of a
+     * parser model and stores them in the {@link ChunkInfo} of each chunk,
+     * without building the feature strings. The feature list of each chunk is
+     * left empty. {@link Parser} uses this selector only if
+     * {@link Param#RESOLVE_FEATURES} is set.
+     *
+     * @param model
+     *            the model of the dependency parser which follows this selector,
+     *            or null to store the features as strings
+     */
+    public Selector(SVMModel model) {
         super();
+        this.model = model;
         this.patKutouten = new PatternMatcher();
         this.patOpenBracket = new PatternMatcher();
         this.patCloseBracket = new PatternMatcher();
@@ -96,82 +150,95 @@ public class Selector implements Analyzer {
     @Override
     public void parse(Tree tree) {
         int chunkSize = tree.getChunkSize();
-        int posSize = 2;
+        ChunkInfoBuilder builder = model == null ? null : new ChunkInfoBuilder(model, nameNodes);
 
         for (int i = 0; i < chunkSize; i++) {
             Chunk chunk = tree.chunk(i);
-            int tokenSize = chunk.getTokenSize();
-            for (int j = 0; j < tokenSize; j++) {
-                Token token = chunk.token(j);
-                if (this.patKutouten.match(token.getNormalizedSurface())) {
-                    chunk.getFeatureList().add("GPUNC:" + token.getNormalizedSurface());
-                    chunk.getFeatureList().add("FPUNC:" + token.getNormalizedSurface());
-                }
-                if (this.patOpenBracket.match(token.getNormalizedSurface())) {
-                    chunk.getFeatureList().add("GOB:" + token.getNormalizedSurface());
-                    chunk.getFeatureList().add("FOB:" + token.getNormalizedSurface());
-                    chunk.getFeatureList().add("GOB:1");
-                    chunk.getFeatureList().add("FOB:1");
-                }
-                if (this.patCloseBracket.match(token.getNormalizedSurface())) {
-                    chunk.getFeatureList().add("GCB:" + token.getNormalizedSurface());
-                    chunk.getFeatureList().add("FCB:" + token.getNormalizedSurface());
-                    chunk.getFeatureList().add("GCB:1");
-                    chunk.getFeatureList().add("FCB:1");
-                }
-                if (this.patCase.prefixMatch(token.getFeature())) {
-                    chunk.getFeatureList().add("FCASE:" + token.getNormalizedSurface());
-                }
+            if (builder == null) {
+                List<String> featureList = chunk.getFeatureList();
+                selectFeatures(tree, i, (type, name, value) -> featureList.add(type + name + ":" + value));
+            } else {
+                selectFeatures(tree, i, builder);
+                chunk.setChunkInfo(builder.build());
             }
+        }
 
-            Ref<Integer> headIndex = new Ref<>(0);
-            Ref<Integer> funcIndex = new Ref<>(0);
-            findHead(chunk, headIndex, funcIndex);
+        tree.setOutputLayer(OutputLayerType.OUTPUT_SELECTION);
+    }
 
-            chunk.setHeadPos(headIndex.get());
-            chunk.setFuncPos(funcIndex.get());
+    private void selectFeatures(Tree tree, int i, FeatureCollector features) {
+        int chunkSize = tree.getChunkSize();
 
-            Token htoken = chunk.token(headIndex.get());
-            Token ftoken = chunk.token(funcIndex.get());
-            Token ltoken = chunk.token(0);
-            Token rtoken = chunk.token(tokenSize - 1);
+        Chunk chunk = tree.chunk(i);
+        int tokenSize = chunk.getTokenSize();
+        for (int j = 0; j < tokenSize; j++) {
+            Token token = chunk.token(j);
+            if (this.patKutouten.match(token.getNormalizedSurface())) {
+                features.add('G', "PUNC", token.getNormalizedSurface());
+                features.add('F', "PUNC", token.getNormalizedSurface());
+            }
+            if (this.patOpenBracket.match(token.getNormalizedSurface())) {
+                features.add('G', "OB", token.getNormalizedSurface());
+                features.add('F', "OB", token.getNormalizedSurface());
+                features.add('G', "OB", "1");
+                features.add('F', "OB", "1");
+            }
+            if (this.patCloseBracket.match(token.getNormalizedSurface())) {
+                features.add('G', "CB", token.getNormalizedSurface());
+                features.add('F', "CB", token.getNormalizedSurface());
+                features.add('G', "CB", "1");
+                features.add('F', "CB", "1");
+            }
+            if (this.patCase.prefixMatch(token.getFeature())) {
+                features.add('F', "CASE", token.getNormalizedSurface());
+            }
+        }
 
-            // static features
-            emitTokenFeatures("FH", htoken, posSize, chunk.getFeatureList());
-            emitTokenFeatures("FF", ftoken, posSize, chunk.getFeatureList());
-            emitTokenFeatures("FL", ltoken, posSize, chunk.getFeatureList());
-            emitTokenFeatures("FR", rtoken, posSize, chunk.getFeatureList());
+        Ref<Integer> headIndex = new Ref<>(0);
+        Ref<Integer> funcIndex = new Ref<>(0);
+        findHead(chunk, headIndex, funcIndex);
 
-            // context features
-            chunk.getFeatureList().add("LF:" + ftoken.getNormalizedSurface());
-            chunk.getFeatureList().add("RL:" + ltoken.getNormalizedSurface());
-            chunk.getFeatureList().add("RH:" + htoken.getNormalizedSurface());
-            chunk.getFeatureList().add("RF:" + ftoken.getNormalizedSurface());
+        chunk.setHeadPos(headIndex.get());
+        chunk.setFuncPos(funcIndex.get());
 
-            if (i == 0) {
-                chunk.getFeatureList().add("FBOS:1");
-            }
-            if (i == chunkSize - 1) {
-                chunk.getFeatureList().add("FEOS:1");
-            }
+        Token htoken = chunk.token(headIndex.get());
+        Token ftoken = chunk.token(funcIndex.get());
+        Token ltoken = chunk.token(0);
+        Token rtoken = chunk.token(tokenSize - 1);
 
-            if (this.patCase.prefixMatch(ftoken.getFeature())) {
-                chunk.getFeatureList().add("GCASE:" + ftoken.getNormalizedSurface());
-            }
+        // static features
+        emitTokenFeatures(HEAD, htoken, features);
+        emitTokenFeatures(FUNC, ftoken, features);
+        emitTokenFeatures(LEFT, ltoken, features);
+        emitTokenFeatures(RIGHT, rtoken, features);
 
-            // dynamic features
-            String fcform = getToken(ftoken, posSize + 1);
-            if (this.patDynA.prefixMatch(ftoken.getFeature())) {
-                chunk.getFeatureList().add("A:" + ftoken.getNormalizedSurface());
-            } else if (fcform != null) {
-                chunk.getFeatureList().add("A:" + fcform);
-            } else {
-                String output = concatFeature(ftoken, posSize);
-                chunk.getFeatureList().add("A:" + output);
-            }
+        // context features
+        features.add('L', "F", ftoken.getNormalizedSurface());
+        features.add('R', "L", ltoken.getNormalizedSurface());
+        features.add('R', "H", htoken.getNormalizedSurface());
+        features.add('R', "F", ftoken.getNormalizedSurface());
+
+        if (i == 0) {
+            features.add('F', "BOS", "1");
+        }
+        if (i == chunkSize - 1) {
+            features.add('F', "EOS", "1");
         }
 
-        tree.setOutputLayer(OutputLayerType.OUTPUT_SELECTION);
+        if (this.patCase.prefixMatch(ftoken.getFeature())) {
+            features.add('G', "CASE", ftoken.getNormalizedSurface());
+        }
+
+        // dynamic features
+        String fcform = getToken(ftoken, POS_SIZE + 1);
+        if (this.patDynA.prefixMatch(ftoken.getFeature())) {
+            features.add('A', "", ftoken.getNormalizedSurface());
+        } else if (fcform != null) {
+            features.add('A', "", fcform);
+        } else {
+            String output = concatFeature(ftoken, POS_SIZE);
+            features.add('A', "", output);
+        }
     }
 
     private String getToken(Token token, int index) {
@@ -184,22 +251,22 @@ public class Selector implements Analyzer {
         return token.getFeatureList().get(index);
     }
 
-    private void emitTokenFeatures(String header, Token token, int posSize, List<String> featureList) {
+    private void emitTokenFeatures(int header, Token token, FeatureCollector features) {
         String surface = token.getNormalizedSurface();
-        String cform = getToken(token, posSize + 1);
+        String cform = getToken(token, POS_SIZE + 1);
 
-        featureList.add(header + "S:" + surface);
+        features.add('F', SURFACE_NAMES[header], surface);
 
-        int size = Math.min(posSize, token.getFeatureListSize());
+        int size = Math.min(POS_SIZE, token.getFeatureListSize());
 
         for (int k = 0; k < size; ++k) {
             if (("*").equals(token.getFeatureList().get(k))) {
                 break;
             }
-            featureList.add(header + "P" + k + ":" + token.getFeatureList().get(k));
+            features.add('F', POS_NAMES[header][k], token.getFeatureList().get(k));
         }
         if (cform != null) {
-            featureList.add(header + "F:" + cform);
+            features.add('F', CFORM_NAMES[header], cform);
         }
     }
 
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the rendered results of {@link Parser}, keyed by the input
+ * text.
+ *
+ * <p>
+ * The entries are spread over segments by the hash of the text. Each segment
+ * is an LRU list guarded by its own lock, so that threads rarely contend, and
+ * evicts its least recently used entry when full. A cache belongs to one parser,
+ * whose input layer, output layer and output format are fixed, so the text
+ * alone identifies a result.
+ *
+ * <p>
+ * The text is used as is, without stripping line endings or trailing spaces.
+ * Sudachi turns whitespace into tokens, so such texts have results of their
+ * own, and a normalized key would return a result the parser does not produce
+ * for the text. Callers reading lines, like {@link Cabocha}, already pass the
+ * text without the line ending.
+ */
+public class SentenceCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final int maxSize;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static class Segment extends LinkedHashMap<String, String> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize
+     *            the maximum number of the entries, must be positive
+     */
+    public SentenceCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("cache size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        int n = Math.min(MAX_SEGMENTS, maxSize);
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(maxSize / n + (i < maxSize % n ? 1 : 0));
+        }
+    }
+
+    private Segment segment(String text) {
+        int h = text.hashCode();
+        h ^= (h >>> 16);
+        return segments[(h & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * Returns the cached result of a text, and counts a hit or a miss.
+     *
+     * @param text
+     *            the input text
+     * @return the result, or {@code null} if not cached
+     */
+    public String get(String text) {
+        Segment segment = segment(text);
+        String result;
+        synchronized (segment) {
+            result = segment.get(text);
+        }
+        if (result == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Cache the result of a text.
+     *
+     * @param text
+     *            the input text
+     * @param result
+     *            the result
+     */
+    public void put(String text, String result) {
+        Segment segment = segment(text);
+        synchronized (segment) {
+            segment.put(text, result);
+        }
+    }
+
+    /**
+     * Remove all the entries. The counters are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of the cached entries.
+     *
+     * @return the number of the entries
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the ratio of the hits to all the lookups.
+     *
+     * @return the hit rate, or 0 if nothing was looked up
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+}
@@ -26,36 +26,131 @@ import com.worksap.nlp.sudachi.Tokenizer;
 import com.worksap.nlp.sudachi.Tokenizer.SplitMode;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
+/**
+ * A Sudachi tokenizer. A tokenizer is not thread-safe, while the dictionary it
+ * is created from can be shared.
+ */
 public class SudachiTokenizer {
 
-    private static Dictionary dictionary;
-    private Tokenizer tokenizer;
+    private final Tokenizer tokenizer;
+    private final SplitMode mode;
+    private final PartOfSpeechCache partOfSpeechCache = new PartOfSpeechCache();
+
+    public SudachiTokenizer(Dictionary dictionary) {
+        this(dictionary, SplitMode.A);
+    }
+
+    public SudachiTokenizer(Dictionary dictionary, SplitMode mode) {
+        this.tokenizer = dictionary.create();
+        this.mode = mode;
+    }
+
+    PartOfSpeechCache getPartOfSpeechCache() {
+        return partOfSpeechCache;
+    }
 
-    private SudachiTokenizer() {
-        tokenizer = dictionary.create();
+    /**
+     * Load the Sudachi dictionary configured in a directory. The settings and
+     * the dictionaries not found in the directory are looked up in the
+     * classpath.
+     *
+     * @param dictPath
+     *            the path of the directory
+     * @return the dictionary
+     * @throws IOException
+     *             if the dictionary cannot be read
+     */
+    public static Dictionary loadDictionary(String dictPath) throws IOException {
+        return loadDictionary(dictPath, null, null);
     }
 
-    private static synchronized void load(String dictPath) throws IOException {
-        if (dictionary == null) {
-            PathAnchor anchor = PathAnchor.filesystem(Paths.get(dictPath)).andThen(PathAnchor.classpath());
-            Config config = Config.defaultConfig(anchor);
-            dictionary = new DictionaryFactory().create(config);
+    /**
+     * Load the Sudachi dictionary configured in a directory, overriding the
+     * dictionaries of the settings. Relative paths are resolved against the
+     * directory.
+     *
+     * @param dictPath
+     *            the path of the directory
+     * @param systemDict
+     *            the system dictionary, or {@code null} to use that of the
+     *            settings
+     * @param userDicts
+     *            the user dictionaries replacing those of the settings, or
+     *            {@code null} to use those of the settings
+     * @return the dictionary
+     * @throws IOException
+     *             if the dictionary cannot be read
+     */
+    public static Dictionary loadDictionary(String dictPath, String systemDict, List<String> userDicts)
+            throws IOException {
+        Path dir = Paths.get(dictPath);
+        PathAnchor anchor = PathAnchor.filesystem(dir).andThen(PathAnchor.classpath());
+        Config config = Config.defaultConfig(anchor);
+        if (systemDict != null) {
+            config = config.systemDictionary(dir.resolve(systemDict));
         }
+        if (userDicts != null) {
+            config = config.clearUserDictionaries();
+            for (String userDict : userDicts) {
+                config = config.addUserDictionary(dir.resolve(userDict));
+            }
+        }
+        return new DictionaryFactory().create(config);
     }
 
-    public static SudachiTokenizer getInstance(String dictPath) throws IOException {
-        load(dictPath);
-        return new SudachiTokenizer();
+    /**
+     * Parse the name of a split mode.
+     *
+     * @param name
+     *            "A", "B" or "C" in any case, or {@code null} for the default
+     * @return the split mode, {@link SplitMode#A} by default
+     */
+    public static SplitMode parseSplitMode(String name) {
+        if (!Utils.check(name)) {
+            return SplitMode.A;
+        }
+        try {
+            return SplitMode.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid split mode: " + name + "\n", e);
+        }
     }
 
     public List<Morpheme> parse(String text) {
         if (!Utils.check((text))) {
             return Collections.emptyList();
         }
-        return tokenizer.tokenize(SplitMode.A, text);
+        return tokenizer.tokenize(mode, text);
+    }
+
+    /**
+     * Split a document into sentences and tokenize them.
+     *
+     * @param document
+     *            the document
+     * @return the morphemes of each sentence
+     */
+    public Iterable<? extends List<Morpheme>> parseSentences(String document) {
+        return tokenizer.tokenizeSentences(mode, document);
+    }
+
+    /**
+     * Split a document into sentences and tokenize them.
+     *
+     * @param input
+     *            the document
+     * @return the morphemes of each sentence
+     * @throws IOException
+     *             if {@code input} fails to read
+     */
+    public Iterable<? extends List<Morpheme>> parseSentences(Reader input) throws IOException {
+        return tokenizer.tokenizeSentences(mode, input);
     }
 }
@@ -19,10 +19,11 @@ package com.worksap.nlp.kintoki.cabocha;
 import com.worksap.nlp.kintoki.cabocha.util.EastAsianWidth;
 import com.worksap.nlp.sudachi.Morpheme;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class Tree {
@@ -107,6 +108,19 @@ public class Tree {
         }
     }
 
+    void read(List<Morpheme> morphemes, PartOfSpeechCache cache) {
+        for (Morpheme m : morphemes) {
+            PartOfSpeechCache.Entry pos = cache.get(m);
+            Token token = new Token();
+            token.setSurface(m.surface());
+            token.setNormalizedSurface(m.normalizedForm());
+            token.setPos(pos.pos);
+            token.setFeature(pos.feature);
+            token.setFeatureList(pos.featureList);
+            tokens.add(token);
+        }
+    }
+
     private void readCaboChaFormat(String input, InputLayerType inputLayer) {
         if (input.trim().isEmpty()) {
             return;
@@ -182,109 +196,356 @@ public class Tree {
         return sb.toString();
     }
 
+    /**
+     * Writes this tree in the given format.
+     *
+     * <p>
+     * The result is appended piece by piece, so writing to a buffered
+     * {@link java.io.Writer} does not build the whole text of the sentence.
+     *
+     * @param out
+     *            the destination
+     * @param outputFormat
+     *            the format of the output
+     * @throws IOException
+     *             if {@code out} fails to append
+     */
+    public void writeTo(Appendable out, FormatType outputFormat) throws IOException {
+        writeTree(out, outputLayer, outputFormat);
+    }
+
     public void writeTree(StringBuilder sb, OutputLayerType outputLayer, FormatType outputFormat) {
+        try {
+            writeTree((Appendable) sb, outputLayer, outputFormat);
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeTree(Appendable out, OutputLayerType outputLayer, FormatType outputFormat) throws IOException {
         switch (outputFormat) {
         case FORMAT_LATTICE:
-            writeLattice(sb, outputLayer);
+            writeLattice(out, outputLayer);
             break;
         case FORMAT_TREE_LATTICE:
-            writeTree(sb);
-            writeLattice(sb, outputLayer);
+            writeTree(out);
+            writeLattice(out, outputLayer);
             break;
         case FORMAT_TREE:
-            writeTree(sb);
+            writeTree(out);
             break;
         case FORMAT_XML:
+            writeXml(out, outputLayer);
+            break;
         case FORMAT_CONLL:
-            throw new UnsupportedOperationException("Not implemented");
+            writeConll(out, outputLayer);
+            break;
         case FORMAT_NONE:
             break;
         default:
+            // including FORMAT_BINARY, which is written by BinaryFormatWriter
             throw new IllegalArgumentException("unknown format: " + outputFormat + "\n");
         }
     }
 
-    private void writeLattice(StringBuilder sb, OutputLayerType outputLayer) {
+    private void writeLattice(Appendable out, OutputLayerType outputLayer) throws IOException {
         if (outputLayer == OutputLayerType.OUTPUT_RAW_SENTENCE) {
-            sb.append(getSentence());
-            sb.append("\n");
+            if (isEmpty()) {
+                out.append(sentence);
+            } else {
+                for (Token token : getTokens()) {
+                    out.append(token.getSurface());
+                }
+            }
+            out.append('\n');
         } else if (outputLayer == OutputLayerType.OUTPUT_POS) {
-            sb.append(getTokens().stream().map(t -> t.getSurface() + "\t" + t.getFeature() + "\n")
-                    .collect(Collectors.joining()));
-            sb.append(EOS_NL);
+            for (Token token : getTokens()) {
+                writeToken(out, token);
+            }
+            out.append(EOS_NL);
         } else {
             int ci = 0;
             for (Chunk chunk : getChunks()) {
-                writeChunk(sb, chunk, ci++, outputLayer);
+                writeChunk(out, chunk, ci++, outputLayer);
             }
-            sb.append(EOS_NL);
+            out.append(EOS_NL);
         }
     }
 
-    private void writeChunk(StringBuilder sb, Chunk chunk, int id, OutputLayerType outputLayer) {
-        writeHeader1(sb, id, (outputLayer == OutputLayerType.OUTPUT_DEP) ? chunk.getLink() : -1);
+    private void writeChunk(Appendable out, Chunk chunk, int id, OutputLayerType outputLayer) throws IOException {
+        writeHeader1(out, id, (outputLayer == OutputLayerType.OUTPUT_DEP) ? chunk.getLink() : -1);
         if (outputLayer != OutputLayerType.OUTPUT_CHUNK) {
-            writeHeader2(sb, chunk);
-            if (outputLayer == OutputLayerType.OUTPUT_SELECTION && chunk.getFeatureList() != null
-                    && !chunk.getFeatureList().isEmpty()) {
-                sb.append(' ').append(String.join(",", chunk.getFeatureList()));
+            writeHeader2(out, chunk);
+            List<String> features = chunk.getFeatureList();
+            if (outputLayer == OutputLayerType.OUTPUT_SELECTION && features != null && !features.isEmpty()) {
+                out.append(' ');
+                for (int i = 0; i < features.size(); i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    out.append(features.get(i));
+                }
             }
         }
-        sb.append('\n');
+        out.append('\n');
 
         for (Token token : chunk.getTokens()) {
-            sb.append(token.getSurface()).append('\t').append(token.getFeature()).append('\n');
+            writeToken(out, token);
         }
     }
 
-    private void writeHeader1(StringBuilder sb, int id, int link) {
-        sb.append("* ").append(id).append(' ').append(link).append("D");
+    private void writeToken(Appendable out, Token token) throws IOException {
+        out.append(token.getSurface()).append('\t').append(token.getFeature()).append('\n');
+    }
+
+    private void writeHeader1(Appendable out, int id, int link) throws IOException {
+        out.append("* ");
+        appendInt(out, id);
+        out.append(' ');
+        appendInt(out, link);
+        out.append('D');
     }
 
-    private void writeHeader2(StringBuilder sb, Chunk chunk) {
-        sb.append(' ').append(chunk.getHeadPos()).append('/').append(chunk.getFuncPos()).append(' ')
-                .append(chunk.getScore());
+    private void writeHeader2(Appendable out, Chunk chunk) throws IOException {
+        out.append(' ');
+        appendInt(out, chunk.getHeadPos());
+        out.append('/');
+        appendInt(out, chunk.getFuncPos());
+        out.append(' ').append(Double.toString(chunk.getScore()));
     }
 
-    private void writeTree(StringBuilder sb) {
+    private void writeTree(Appendable out) throws IOException {
         int size = getChunkSize();
-        Optional<Integer> maxLength = getChunks().stream()
-                .map(chunk -> EastAsianWidth.getEastAsianWidth(chunk.getSurface()))
-                .collect(Collectors.reducing(Integer::max));
-        if (!maxLength.isPresent()) {
-            sb.append(EOS_NL);
+        if (size == 0) {
+            out.append(EOS_NL);
             return;
         }
-        int maxLen = maxLength.get();
+        int[] widths = new int[size];
+        int maxLen = 0;
+        for (int i = 0; i < size; i++) {
+            int width = 0;
+            for (Token token : chunk(i).getTokens()) {
+                width += EastAsianWidth.getEastAsianWidth(token.getSurface());
+            }
+            widths[i] = width;
+            maxLen = Math.max(maxLen, width);
+        }
         boolean[] e = new boolean[size];
 
         for (int i = 0; i < size; ++i) {
             boolean isDep = false;
             int link = chunk(i).getLink();
-            String surface = chunk(i).getSurface();
-            int rem = maxLen - EastAsianWidth.getEastAsianWidth(surface) + i * 2;
+            int rem = maxLen - widths[i] + i * 2;
             for (int j = 0; j < rem; ++j) {
-                sb.append(' ');
+                out.append(' ');
+            }
+            for (Token token : chunk(i).getTokens()) {
+                out.append(token.getSurface());
             }
-            sb.append(surface);
 
             for (int j = i + 1; j < size; j++) {
                 if (link == j) {
-                    sb.append("-" + "D");
+                    out.append("-D");
                     isDep = true;
                     e[j] = true;
                 } else if (e[j]) {
-                    sb.append(" |");
+                    out.append(" |");
                 } else if (isDep) {
-                    sb.append("  ");
+                    out.append("  ");
+                } else {
+                    out.append("--");
+                }
+            }
+            out.append('\n');
+        }
+
+        out.append(EOS_NL);
+    }
+
+    /**
+     * Writes the tree in the XML format of CaboCha. A {@code sentence} element
+     * holds {@code chunk} elements, or {@code tok} elements directly below the
+     * chunk layer. The {@code head} and {@code func} of a chunk, and the
+     * {@code id} of a token are the positions in the sentence.
+     */
+    private void writeXml(Appendable out, OutputLayerType outputLayer) throws IOException {
+        XmlWriter xml = new XmlWriter(out);
+        xml.startElement("sentence").endAttributes();
+        if (outputLayer == OutputLayerType.OUTPUT_RAW_SENTENCE) {
+            if (isEmpty()) {
+                xml.characters(sentence);
+            } else {
+                for (Token token : getTokens()) {
+                    xml.characters(token.getSurface());
+                }
+            }
+            xml.endElement("sentence").newLine();
+            return;
+        }
+        xml.newLine();
+
+        if (outputLayer == OutputLayerType.OUTPUT_POS) {
+            int id = 0;
+            for (Token token : getTokens()) {
+                writeXmlToken(xml, 1, id++, token);
+            }
+        } else {
+            int id = 0;
+            int ci = 0;
+            for (Chunk chunk : getChunks()) {
+                xml.indent(1).startElement("chunk").attribute("id", ci++);
+                xml.attribute("link", (outputLayer == OutputLayerType.OUTPUT_DEP) ? chunk.getLink() : -1);
+                xml.attribute("rel", "D");
+                if (outputLayer != OutputLayerType.OUTPUT_CHUNK) {
+                    xml.attribute("score", chunk.getScore());
+                    xml.attribute("head", id + chunk.getHeadPos()).attribute("func", id + chunk.getFuncPos());
+                    List<String> features = chunk.getFeatureList();
+                    if (outputLayer == OutputLayerType.OUTPUT_SELECTION && features != null && !features.isEmpty()) {
+                        xml.attribute("feature", String.join(",", features));
+                    }
+                }
+                xml.endAttributes().newLine();
+                for (Token token : chunk.getTokens()) {
+                    writeXmlToken(xml, 2, id++, token);
+                }
+                xml.indent(1).endElement("chunk").newLine();
+            }
+        }
+        xml.endElement("sentence").newLine();
+    }
+
+    private void writeXmlToken(XmlWriter xml, int depth, int id, Token token) throws IOException {
+        xml.indent(depth).startElement("tok").attribute("id", id).attribute("feature", token.getFeature())
+                .endAttributes();
+        xml.characters(token.getSurface()).endElement("tok").newLine();
+    }
+
+    /**
+     * Writes the tokens in the CoNLL-X format, one token per line and a blank
+     * line after the sentence. The columns are ID, FORM, LEMMA, CPOSTAG, POSTAG,
+     * FEATS, HEAD, DEPREL, PHEAD and PDEPREL:
+     *
+     * <ul>
+     * <li>LEMMA is the seventh feature if any, or the surface otherwise.
+     * <li>CPOSTAG is the first feature, and POSTAG the first four features
+     * joined by '-'.
+     * <li>FEATS are the conjugation type and form joined by '|'.
+     * <li>The head token of a chunk depends on the head token of the chunk it
+     * modifies with the relation "D", or on 0 with "ROOT". The other tokens
+     * depend on the head token of their chunk with "I". Without dependencies,
+     * HEAD and DEPREL are "_".
+     * </ul>
+     */
+    private void writeConll(Appendable out, OutputLayerType outputLayer) throws IOException {
+        int size = getChunkSize();
+        if (outputLayer == OutputLayerType.OUTPUT_RAW_SENTENCE || outputLayer == OutputLayerType.OUTPUT_POS
+                || size == 0) {
+            int id = 1;
+            for (Token token : getTokens()) {
+                writeConllToken(out, id++, token, -1, null);
+            }
+            out.append('\n');
+            return;
+        }
+
+        boolean hasDep = outputLayer == OutputLayerType.OUTPUT_DEP;
+        int[] heads = new int[size];
+        int id = 1;
+        for (int i = 0; i < size; i++) {
+            Chunk chunk = chunk(i);
+            heads[i] = id + Math.max(0, Math.min(chunk.getHeadPos(), chunk.getTokenSize() - 1));
+            id += chunk.getTokenSize();
+        }
+
+        id = 1;
+        for (int i = 0; i < size; i++) {
+            Chunk chunk = chunk(i);
+            int link = chunk.getLink();
+            for (Token token : chunk.getTokens()) {
+                if (!hasDep) {
+                    writeConllToken(out, id, token, -1, null);
+                } else if (id != heads[i]) {
+                    writeConllToken(out, id, token, heads[i], "I");
+                } else if (link >= 0) {
+                    writeConllToken(out, id, token, heads[link], "D");
                 } else {
-                    sb.append("--");
+                    writeConllToken(out, id, token, 0, "ROOT");
                 }
+                id++;
             }
-            sb.append("\n");
         }
+        out.append('\n');
+    }
+
+    private void writeConllToken(Appendable out, int id, Token token, int head, String deprel) throws IOException {
+        List<String> features = token.getFeatureList();
+        int featureSize = features.size();
+
+        appendInt(out, id);
+        out.append('\t').append(token.getSurface()).append('\t');
+        if (featureSize > 6 && !features.get(6).equals("*")) {
+            out.append(features.get(6));
+        } else {
+            out.append(token.getSurface());
+        }
+        out.append('\t');
+        appendConllField(out, features, 0, Math.min(1, featureSize), '-');
+        out.append('\t');
+        appendConllField(out, features, 0, Math.min(4, featureSize), '-');
+        out.append('\t');
+        appendConllField(out, features, 4, Math.min(6, featureSize), '|');
+        out.append('\t');
+        if (head < 0) {
+            out.append("_\t_");
+        } else {
+            appendInt(out, head);
+            out.append('\t').append(deprel);
+        }
+        out.append("\t_\t_\n");
+    }
 
-        sb.append(EOS_NL);
+    /**
+     * Appends the features in [begin, end) except "*", or "_" if none.
+     */
+    private static void appendConllField(Appendable out, List<String> features, int begin, int end, char delimiter)
+            throws IOException {
+        boolean empty = true;
+        for (int i = begin; i < end; i++) {
+            String feature = features.get(i);
+            if (feature.equals("*") || feature.isEmpty()) {
+                continue;
+            }
+            if (!empty) {
+                out.append(delimiter);
+            }
+            out.append(feature);
+            empty = false;
+        }
+        if (empty) {
+            out.append('_');
+        }
+    }
+
+    /**
+     * Appends the decimal digits of {@code value} without creating a string.
+     */
+    static void appendInt(Appendable out, int value) throws IOException {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                out.append(Integer.toString(value));
+                return;
+            }
+            out.append('-');
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
     }
 
     public boolean isEmpty() {
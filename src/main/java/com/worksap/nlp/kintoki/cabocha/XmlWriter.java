@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Minimal streaming XML writer. Elements and attributes are appended to the
+ * destination as they are written; no document is built.
+ *
+ * <p>
+ * Text without special characters is appended as is. Otherwise it is escaped
+ * into a buffer which is reused for the following texts. Tabs and line breaks
+ * are escaped as character references in attribute values, which would
+ * otherwise be normalized to spaces by XML parsers.
+ */
+final class XmlWriter {
+
+    private final Appendable out;
+    private char[] buffer = null;
+
+    XmlWriter(Appendable out) {
+        this.out = out;
+    }
+
+    XmlWriter indent(int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.append(' ');
+        }
+        return this;
+    }
+
+    XmlWriter startElement(String name) throws IOException {
+        out.append('<').append(name);
+        return this;
+    }
+
+    XmlWriter attribute(String name, String value) throws IOException {
+        out.append(' ').append(name).append("=\"");
+        escape(value, true);
+        out.append('"');
+        return this;
+    }
+
+    XmlWriter attribute(String name, int value) throws IOException {
+        out.append(' ').append(name).append("=\"");
+        Tree.appendInt(out, value);
+        out.append('"');
+        return this;
+    }
+
+    XmlWriter attribute(String name, double value) throws IOException {
+        out.append(' ').append(name).append("=\"").append(Double.toString(value)).append('"');
+        return this;
+    }
+
+    /**
+     * Closes the start tag of the current element.
+     */
+    XmlWriter endAttributes() throws IOException {
+        out.append('>');
+        return this;
+    }
+
+    XmlWriter characters(String text) throws IOException {
+        escape(text, false);
+        return this;
+    }
+
+    XmlWriter endElement(String name) throws IOException {
+        out.append("</").append(name).append('>');
+        return this;
+    }
+
+    XmlWriter newLine() throws IOException {
+        out.append('\n');
+        return this;
+    }
+
+    void escape(String text, boolean attribute) throws IOException {
+        int length = text.length();
+        int i = 0;
+        while (i < length && !isSpecial(text.charAt(i), attribute)) {
+            i++;
+        }
+        if (i == length) {
+            out.append(text);
+            return;
+        }
+
+        // each character expands to at most 6 characters
+        int capacity = length * 6;
+        if (buffer == null || buffer.length < capacity) {
+            buffer = new char[Math.max(capacity, 256)];
+        }
+        text.getChars(0, i, buffer, 0);
+        int n = i;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '&':
+                n = put(n, "&amp;");
+                break;
+            case '<':
+                n = put(n, "&lt;");
+                break;
+            case '>':
+                n = put(n, "&gt;");
+                break;
+            case '"':
+                n = put(n, "&quot;");
+                break;
+            case '\'':
+                n = put(n, "&apos;");
+                break;
+            case '\t':
+                n = attribute ? put(n, "&#9;") : put(n, c);
+                break;
+            case '\n':
+                n = attribute ? put(n, "&#10;") : put(n, c);
+                break;
+            case '\r':
+                n = attribute ? put(n, "&#13;") : put(n, c);
+                break;
+            default:
+                if (c >= 0x20) {
+                    buffer[n++] = c;
+                }
+                // other control characters are not allowed in XML 1.0
+                break;
+            }
+        }
+        flush(n);
+    }
+
+    private int put(int n, String entity) {
+        entity.getChars(0, entity.length(), buffer, n);
+        return n + entity.length();
+    }
+
+    private int put(int n, char c) {
+        buffer[n] = c;
+        return n + 1;
+    }
+
+    private void flush(int n) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(buffer, 0, n);
+        } else if (out instanceof Writer) {
+            ((Writer) out).write(buffer, 0, n);
+        } else {
+            out.append(CharBuffer.wrap(buffer, 0, n));
+        }
+    }
+
+    private static boolean isSpecial(char c, boolean attribute) {
+        switch (c) {
+        case '&':
+        case '<':
+        case '>':
+        case '"':
+        case '\'':
+            return true;
+        case '\t':
+        case '\n':
+        case '\r':
+            return attribute;
+        default:
+            return c < 0x20;
+        }
+    }
+}
@@ -33,19 +33,19 @@ public class DecoderFeatureIndex extends FeatureIndex {
     }
 
     @Override
-    protected int getID(String key) {
-        return dat.exactMatchSearch(key);
+    protected int getID(byte[] key, int length) {
+        return dat.exactMatchSearch(key, 0, length);
     }
 
-    static DecoderFeatureIndex openBinaryModel(String path) throws IOException {
+    static DecoderFeatureIndex openBinaryModel(String path, boolean mmap) throws IOException {
         DecoderFeatureIndex featureIndex = new DecoderFeatureIndex();
-        ByteBuffer bytes = ByteUtil.readAsByteBuffer(path);
+        ByteBuffer bytes = ByteUtil.readAsByteBuffer(path, mmap);
         int version = bytes.getInt(); // unsigned int
         if (MODEL_VERSION / 100 != version / 100) {
             throw new IOException("Invalid model");
         }
         int type = bytes.getInt();
-        featureIndex.costFactor = bytes.getDouble();
+        bytes.getDouble(); // cost factor used in training, given by the caller instead
         featureIndex.maxId = bytes.getInt(); // unsigned int
         featureIndex.xsize = bytes.getInt(); // unsigned int
         int dsize = bytes.getInt(); // unsigned int
@@ -56,13 +56,17 @@ public class DecoderFeatureIndex extends FeatureIndex {
 
         int tmplStrSize = bytes.getInt(); // unsigned int
         String[] tmplStr = ByteUtil.getString(bytes, tmplStrSize, StandardCharsets.UTF_8).split("\0");
-        List<String> unigramTempls = new ArrayList<>();
-        List<String> bigramTempls = new ArrayList<>();
+        List<FeatureTemplate> unigramTempls = new ArrayList<>();
+        List<FeatureTemplate> bigramTempls = new ArrayList<>();
         for (String tmpl : tmplStr) {
-            if (tmpl.startsWith("U")) {
-                unigramTempls.add(tmpl);
-            } else if (tmpl.startsWith("B")) {
-                bigramTempls.add(tmpl);
+            try {
+                if (tmpl.startsWith("U")) {
+                    unigramTempls.add(new FeatureTemplate(tmpl, featureIndex.xsize));
+                } else if (tmpl.startsWith("B")) {
+                    bigramTempls.add(new FeatureTemplate(tmpl, featureIndex.xsize));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid template: " + tmpl, e);
             }
         }
         featureIndex.unigramTempls = unigramTempls;
@@ -70,10 +74,7 @@ public class DecoderFeatureIndex extends FeatureIndex {
 
         featureIndex.dat = new DoubleArrayTrie(bytes, dsize);
 
-        featureIndex.alpha = new double[featureIndex.maxId];
-        for (int i = 0; i < featureIndex.maxId; i++) {
-            featureIndex.alpha[i] = bytes.getFloat();
-        }
+        featureIndex.alpha = ByteUtil.getFloatBuffer(bytes, featureIndex.maxId * 4);
 
         if (bytes.position() != bytes.limit()) {
             throw new IOException("The offset is not equal to the length of byte array.");
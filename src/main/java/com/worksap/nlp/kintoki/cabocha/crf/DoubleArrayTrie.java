@@ -16,50 +16,91 @@
 
 package com.worksap.nlp.kintoki.cabocha.crf;
 
+import com.worksap.nlp.kintoki.cabocha.util.ByteUtil;
+
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
+import java.nio.IntBuffer;
+import java.util.function.IntBinaryOperator;
 
 class DoubleArrayTrie {
 
-    private int[] array;
+    private IntBuffer array;
+    // created once rather than for each search
+    private final IntBinaryOperator stepFunction = this::step;
 
     DoubleArrayTrie(ByteBuffer array, int byteSize) {
-        int arraySize = byteSize / 4;
-        this.array = new int[arraySize];
-        for (int i = 0; i < arraySize; ++i) {
-            this.array[i] = array.getInt();
-        }
+        this.array = ByteUtil.getIntBuffer(array, byteSize);
+    }
+
+    /**
+     * Returns the node where every key starts.
+     */
+    int rootNode() {
+        return getBase(0);
     }
 
-    int exactMatchSearch(String key) {
-        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+    int exactMatchSearch(CharSequence key) {
+        return valueAt(ByteUtil.encodeUtf8(key, 0, key.length(), rootNode(), stepFunction));
+    }
 
-        int result = -1;
-        int b = getBase(0);
-        int p;
+    int exactMatchSearch(byte[] key, int offset, int length) {
+        return valueAt(traverse(rootNode(), key, offset, length));
+    }
 
-        for (int i = 0; i < k.length; ++i) {
-            p = b + Byte.toUnsignedInt(k[i]) + 1;
-            if (b == getCheck(p)) {
-                b = getBase(p);
-            } else {
-                return result;
-            }
+    /**
+     * Walks the trie from a node by bytes. Walking a shared prefix once and
+     * resuming from the returned node for each suffix gives the same result as
+     * searching the whole keys.
+     *
+     * @param node
+     *            the node to start from, {@link #rootNode()} for the beginning
+     *            of a key
+     * @param key
+     *            the buffer which holds the bytes
+     * @param offset
+     *            the offset of the bytes in the buffer
+     * @param length
+     *            the number of the bytes to walk
+     * @return the reached node, or -1 if no key starts with the walked bytes
+     */
+    int traverse(int node, byte[] key, int offset, int length) {
+        for (int i = offset; i < offset + length && node >= 0; ++i) {
+            node = step(node, Byte.toUnsignedInt(key[i]));
         }
+        return node;
+    }
+
+    /**
+     * Returns the value of the key which ends at a node.
+     *
+     * @param node
+     *            the node returned by {@link #traverse}
+     * @return the value, or -1 if no key ends at the node
+     */
+    int valueAt(int node) {
+        if (node < 0) {
+            return -1;
+        }
+        int n = getBase(node);
+        if (node == getCheck(node) && n < 0) {
+            return -n - 1;
+        }
+        return -1;
+    }
 
-        p = b;
-        int n = getBase(p);
-        if (b == getCheck(p) && n < 0) {
-            result = -n - 1;
+    private int step(int node, int label) {
+        if (node < 0) {
+            return -1;
         }
-        return result;
+        int p = node + label + 1;
+        return node == getCheck(p) ? getBase(p) : -1;
     }
 
     private int getBase(int i) {
-        return array[i * 2];
+        return array.get(i * 2);
     }
 
     private int getCheck(int i) {
-        return array[i * 2 + 1];
+        return array.get(i * 2 + 1);
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha.crf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A feature template compiled at model load, such as
+ * {@code U01:%x[-1,0]/%x[0,0]}. It is a sequence of literal bytes and
+ * references to the input columns, and builds the UTF-8 key of a feature
+ * without creating strings.
+ */
+class FeatureTemplate {
+
+    private static final byte[][] BOS = toBytes("_B-1", "_B-2", "_B-3", "_B-4", "_B-5", "_B-6", "_B-7", "_B-8");
+    private static final byte[][] EOS = toBytes("_B+1", "_B+2", "_B+3", "_B+4", "_B+5", "_B+6", "_B+7", "_B+8");
+
+    private final String template;
+    // literals[0] ref[0] literals[1] ref[1] ... literals[n]
+    private final byte[][] literals;
+    private final int[] rows;
+    private final int[] cols;
+
+    /**
+     * Compile a template.
+     *
+     * @param template
+     *            the template
+     * @param xsize
+     *            the number of the columns of the input; references to the
+     *            columns out of it expand to nothing
+     * @throws IllegalArgumentException
+     *             if a reference is malformed
+     */
+    FeatureTemplate(String template, int xsize) {
+        this.template = template;
+        List<byte[]> literalList = new ArrayList<>();
+        List<int[]> refList = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        for (String tmp : template.split("%x", -1)) {
+            if (tmp.startsWith("U") || tmp.startsWith("B")) {
+                literal.append(tmp);
+            } else if (tmp.length() > 0) {
+                String[] tuple = tmp.split("]");
+                if (tuple.length == 0) {
+                    throw new IllegalArgumentException("Invalid template: " + template);
+                }
+                String[] idx = tuple[0].replace("[", "").split(",");
+                if (idx.length < 2) {
+                    throw new IllegalArgumentException("Invalid template: " + template);
+                }
+                int row = Integer.parseInt(idx[0]);
+                int col = Integer.parseInt(idx[1]);
+                if (row >= -EOS.length && row <= EOS.length && col >= 0 && col < xsize) {
+                    literalList.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+                    literal.setLength(0);
+                    refList.add(new int[] { row, col });
+                }
+                if (tuple.length > 1) {
+                    literal.append(tuple[1]);
+                }
+            }
+        }
+        literalList.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+
+        literals = literalList.toArray(new byte[0][]);
+        rows = refList.stream().mapToInt(r -> r[0]).toArray();
+        cols = refList.stream().mapToInt(r -> r[1]).toArray();
+    }
+
+    private static byte[][] toBytes(String... strings) {
+        byte[][] bytes = new byte[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /**
+     * Build the key of the feature at a position into the key buffer of the
+     * tagger.
+     *
+     * @param pos
+     *            the position
+     * @param tagger
+     *            the tagger which holds the input
+     * @return the length of the key
+     */
+    int apply(int pos, Tagger tagger) {
+        tagger.clearKey();
+        tagger.appendKey(literals[0]);
+        for (int i = 0; i < rows.length; i++) {
+            int idx = rows[i] + pos;
+            if (idx < 0) {
+                tagger.appendKey(BOS[-idx - 1]);
+            } else if (idx >= tagger.size()) {
+                tagger.appendKey(EOS[idx - tagger.size()]);
+            } else {
+                tagger.appendKey(idx, cols[i]);
+            }
+            tagger.appendKey(literals[i + 1]);
+        }
+        return tagger.getKeyLength();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
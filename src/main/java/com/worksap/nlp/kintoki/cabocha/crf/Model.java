@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha.crf;
+
+import com.worksap.nlp.kintoki.cabocha.ModelRegistry;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A CRF model loaded from a binary model file.
+ *
+ * <p>
+ * A model is immutable and can be shared by any number of threads. The state
+ * of decoding is held by a {@link Tagger}, which should be created for each
+ * thread by {@link #createTagger()}.
+ */
+public class Model {
+
+    private final FeatureIndex featureIndex;
+    private final double costFactor;
+
+    private Model(FeatureIndex featureIndex, double costFactor) {
+        this.featureIndex = featureIndex;
+        this.costFactor = costFactor;
+    }
+
+    /**
+     * Load a binary model. Every call loads the file again; use
+     * {@link #acquireBinaryModel(String, double, boolean)} to share a model.
+     *
+     * @param path
+     *            the path of the model file
+     * @param costFactor
+     *            the cost factor, must be positive
+     * @param mmap
+     *            if true, the file is mapped into memory and the model refers to
+     *            the mapped region without copying it
+     * @return the model
+     * @throws IOException
+     *             if the file cannot be read or is broken
+     */
+    public static Model openBinaryModel(String path, double costFactor, boolean mmap) throws IOException {
+        if (costFactor <= 0.0) {
+            throw new IllegalArgumentException("cost factor must be positive");
+        }
+        return new Model(DecoderFeatureIndex.openBinaryModel(path, mmap), costFactor);
+    }
+
+    /**
+     * Acquire a binary model from the default {@link ModelRegistry}, loading it
+     * unless the same file is already loaded with the same options.
+     *
+     * @param path
+     *            the path of the model file
+     * @param costFactor
+     *            the cost factor, must be positive
+     * @param mmap
+     *            if true, the file is mapped into memory and the model refers to
+     *            the mapped region without copying it
+     * @return the handle to the model, which must be closed after use
+     * @throws IOException
+     *             if the file cannot be read or is broken
+     */
+    public static ModelRegistry.Handle<Model> acquireBinaryModel(String path, double costFactor, boolean mmap)
+            throws IOException {
+        String type = (mmap ? "crf-mmap" : "crf") + ";cost-factor=" + costFactor;
+        return ModelRegistry.getDefault().acquire(type, path, p -> openBinaryModel(p, costFactor, mmap));
+    }
+
+    /**
+     * Create a new tagger which decodes with this model.
+     *
+     * @return the tagger
+     */
+    public Tagger createTagger() {
+        return new Tagger(featureIndex, costFactor);
+    }
+
+    /**
+     * Returns the names of the output labels.
+     *
+     * @return the list of the label names
+     */
+    public List<String> ynames() {
+        return Collections.unmodifiableList(featureIndex.getY());
+    }
+}
@@ -16,162 +16,236 @@
 
 package com.worksap.nlp.kintoki.cabocha.crf;
 
+import com.worksap.nlp.kintoki.cabocha.ModelRegistry;
+import com.worksap.nlp.kintoki.cabocha.util.ByteUtil;
+
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * Decoder of a CRF model.
+ *
+ * <p>
+ * A tagger holds the input sequence and the lattice of a decoding, so it must
+ * not be shared between threads. The model itself is shared by all the taggers
+ * created from the same {@link Model}.
+ */
 public class Tagger {
 
-    private static Map<String, FeatureIndex> featureIndexCache = new HashMap<>();
-
-    private int ysize;
-    private int featureId;
-    private FeatureIndex featureIndex;
-    private List<List<String>> x;
-    private List<List<Node>> lattice;
-    private List<Integer> result;
-    private List<List<Integer>> featureCache;
-
-    private Tagger(FeatureIndex featureIndex) {
+    private final FeatureIndex featureIndex;
+    private final double costFactor;
+    private final int ysize;
+    private final int xsize;
+    private int size = 0;
+    // the first xsize columns of the input in UTF-8; the column j of the token i
+    // is in [xOffsets[i * xsize + j], xOffsets[i * xsize + j + 1])
+    private byte[] xBytes = new byte[1024];
+    private int[] xOffsets = new int[256];
+    // the key of the feature being built, see FeatureTemplate#apply
+    private byte[] key = new byte[256];
+    private int keyLength = 0;
+    // the feature IDs of all the positions; the i-th set of the features is in
+    // [featureOffsets[i], featureOffsets[i + 1]), see FeatureIndex#buildFeatures
+    private int[] features = new int[256];
+    private int featureSize = 0;
+    private int[] featureOffsets = new int[64];
+    private int featureSetSize = 0;
+    // the lattice, indexed by position * ysize + label
+    private double[] bestCost = new double[0];
+    private int[] prev = new int[0];
+    private int[] result = new int[0];
+
+    Tagger(FeatureIndex featureIndex, double costFactor) {
         this.featureIndex = featureIndex;
+        this.costFactor = costFactor;
         ysize = featureIndex.ysize();
-        featureId = 0;
-        x = new ArrayList<>();
-        lattice = new ArrayList<>();
-        result = new ArrayList<>();
-        featureCache = new ArrayList<>();
+        xsize = featureIndex.getXsize();
     }
 
     public static Tagger openBinaryModel(String path, double costFactor) throws IOException {
-        if (costFactor <= 0.0) {
-            throw new IllegalArgumentException("cost factor must be positive");
+        return openBinaryModel(path, costFactor, false);
+    }
+
+    /**
+     * Create a tagger of a binary model. The model is shared through the default
+     * {@link ModelRegistry}, so the file is loaded once for the taggers opened
+     * with the same options.
+     *
+     * @param path
+     *            the path of the model file
+     * @param costFactor
+     *            the cost factor, must be positive
+     * @param mmap
+     *            if true, the file is mapped into memory and the model refers to
+     *            the mapped region without copying it
+     * @return the tagger
+     * @throws IOException
+     *             if the file cannot be read or is broken
+     * @see Model#acquireBinaryModel(String, double, boolean)
+     */
+    public static Tagger openBinaryModel(String path, double costFactor, boolean mmap) throws IOException {
+        // the registry keeps the released model idle, and the tagger keeps
+        // working even if the model is evicted later
+        try (ModelRegistry.Handle<Model> model = Model.acquireBinaryModel(path, costFactor, mmap)) {
+            return model.get().createTagger();
         }
-        FeatureIndex featureIndex;
-        synchronized (featureIndexCache) {
-            featureIndex = featureIndexCache.get(path);
-            if (featureIndex == null) {
-                featureIndex = DecoderFeatureIndex.openBinaryModel(path);
-                featureIndexCache.put(path, featureIndex);
-            }
-        }
-        featureIndex.setCostFactor(costFactor);
-        return new Tagger(featureIndex);
     }
 
     private void viterbi() {
-        Optional<Node> best = lattice.get(x.size() - 1).stream()
-                .collect(Collectors.maxBy((a, b) -> Double.compare(a.bestCost, b.bestCost)));
-        if (!best.isPresent()) {
-            throw new IllegalArgumentException("Invalid lattice");
+        int last = (size - 1) * ysize;
+        int y = 0;
+        for (int i = 1; i < ysize; i++) {
+            if (bestCost[last + i] > bestCost[last + y]) {
+                y = i;
+            }
         }
 
-        for (Node n = best.get(); n != null; n = n.prev) {
-            result.set(n.x, n.y);
+        for (int position = size - 1; position >= 0 && y != -1; position--) {
+            result[position] = y;
+            y = prev[position * ysize + y];
         }
     }
 
     private void buildLattice() {
-        if (x.isEmpty()) {
-            return;
+        if (bestCost.length < size * ysize) {
+            int capacity = Math.max(size * ysize, bestCost.length * 2);
+            bestCost = new double[capacity];
+            prev = new int[capacity];
+        }
+        if (result.length < size) {
+            result = new int[Math.max(size, result.length * 2)];
         }
 
-        featureIndex.rebuildFeatures(this);
-
-        for (int position = 0; position < lattice.size(); position++) {
-            for (Node rNode : lattice.get(position)) {
-                double rNodeCost = featureIndex.calcCost(rNode);
+        for (int position = 0; position < size; position++) {
+            int begin = featureOffsets[position];
+            int end = featureOffsets[position + 1];
+            for (int y = 0; y < ysize; y++) {
+                double nodeCost = costFactor * featureIndex.calcCost(features, begin, end, y);
+                int node = position * ysize + y;
                 if (position == 0) {
-                    rNode.bestCost = rNodeCost;
+                    bestCost[node] = nodeCost;
+                    prev[node] = -1;
                 } else {
-                    connectNodes(position, rNode, rNodeCost);
+                    connectNodes(position, y, nodeCost);
                 }
             }
         }
     }
 
-    private void connectNodes(int position, Node rNode, double rNodeCost) {
-        rNode.bestCost = Double.NEGATIVE_INFINITY;
+    private void connectNodes(int position, int y, double nodeCost) {
+        // the bigram features between this position and the previous one
+        int set = size + position - 1;
+        int begin = featureOffsets[set];
+        int end = featureOffsets[set + 1];
+        int lNode = (position - 1) * ysize;
+        double best = Double.NEGATIVE_INFINITY;
+        int bestY = -1;
         for (int ly = 0; ly < ysize; ly++) {
-            Node lNode = node(position - 1, ly);
-            double c = lNode.bestCost + featureIndex.calcPathCost(lNode, rNode) + rNodeCost;
-            if (c > rNode.bestCost) {
-                rNode.bestCost = c;
-                rNode.prev = lNode;
+            double c = bestCost[lNode + ly] + costFactor * featureIndex.calcPathCost(features, begin, end, ly, y)
+                    + nodeCost;
+            if (c > best) {
+                best = c;
+                bestY = ly;
             }
         }
-    }
-
-    Node node(int i, int j) {
-        return lattice.get(i).get(j);
-    }
-
-    void setNode(Node n, int i, int j) {
-        lattice.get(i).set(j, n);
+        int node = position * ysize + y;
+        bestCost[node] = best;
+        prev[node] = bestY;
     }
 
     public void add(String... columns) {
-        int xsize = featureIndex.getXsize();
         if (columns.length < xsize) {
             throw new IllegalArgumentException("# x is small: size=" + columns.length + " xsize=" + xsize);
         }
-        List<String> tmpX = Arrays.asList(columns);
-        x.add(tmpX);
-        result.add(0);
-        List<Node> l = Arrays.asList(new Node[ysize]);
-        lattice.add(l);
+        int index = size * xsize;
+        if (index + xsize >= xOffsets.length) {
+            xOffsets = Arrays.copyOf(xOffsets, Math.max(xOffsets.length * 2, index + xsize + 1));
+        }
+        for (int j = 0; j < xsize; j++) {
+            int offset = xOffsets[index + j];
+            int capacity = offset + 3 * columns[j].length();
+            if (capacity > xBytes.length) {
+                xBytes = Arrays.copyOf(xBytes, Math.max(xBytes.length * 2, capacity));
+            }
+            xOffsets[index + j + 1] = ByteUtil.encodeUtf8(columns[j], xBytes, offset);
+        }
+        size++;
     }
 
     public void parse() {
-        featureIndex.buildFeatures(this);
-        if (x.isEmpty()) {
+        if (size == 0) {
             return;
         }
+        featureSize = 0;
+        featureSetSize = 0;
+        featureIndex.buildFeatures(this);
         buildLattice();
         viterbi();
     }
 
     public void clear() {
-        x.clear();
-        lattice.clear();
-        result.clear();
-        featureCache.clear();
+        size = 0;
+        featureSize = 0;
+        featureSetSize = 0;
     }
 
-    int getFeatureId() {
-        return featureId;
+    void clearKey() {
+        keyLength = 0;
     }
 
-    void setFeatureId(int featureId) {
-        this.featureId = featureId;
+    void appendKey(byte[] bytes) {
+        appendKey(bytes, 0, bytes.length);
     }
 
-    List<List<Integer>> getFeatureCache() {
-        return featureCache;
+    void appendKey(int i, int j) {
+        int begin = xOffsets[i * xsize + j];
+        appendKey(xBytes, begin, xOffsets[i * xsize + j + 1] - begin);
     }
 
-    int size() {
-        return x.size();
+    private void appendKey(byte[] bytes, int offset, int length) {
+        if (keyLength + length > key.length) {
+            key = Arrays.copyOf(key, Math.max(key.length * 2, keyLength + length));
+        }
+        System.arraycopy(bytes, offset, key, keyLength, length);
+        keyLength += length;
+    }
+
+    byte[] getKey() {
+        return key;
+    }
+
+    int getKeyLength() {
+        return keyLength;
+    }
+
+    void addFeature(int id) {
+        if (featureSize == features.length) {
+            features = Arrays.copyOf(features, featureSize * 2);
+        }
+        features[featureSize++] = id;
     }
 
-    int xsize() {
-        return featureIndex.getXsize();
+    void endFeatureSet() {
+        if (featureSetSize + 1 == featureOffsets.length) {
+            featureOffsets = Arrays.copyOf(featureOffsets, featureOffsets.length * 2);
+        }
+        featureOffsets[++featureSetSize] = featureSize;
+    }
+
+    int size() {
+        return size;
     }
 
     public int y(int i) {
-        return result.get(i);
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return result[i];
     }
 
     public List<String> ynames() {
         return Collections.unmodifiableList(featureIndex.getY());
     }
-
-    String x(int i, int j) {
-        return x.get(i).get(j);
-    }
 }
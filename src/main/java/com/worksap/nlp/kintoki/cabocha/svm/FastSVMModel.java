@@ -16,17 +16,15 @@
 
 package com.worksap.nlp.kintoki.cabocha.svm;
 
-import com.worksap.nlp.dartsclone.DoubleArray;
 import com.worksap.nlp.kintoki.cabocha.util.ByteUtil;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.function.IntBinaryOperator;
 
 public class FastSVMModel implements SVMModel {
 
@@ -37,14 +35,32 @@ public class FastSVMModel implements SVMModel {
     private int bias;
     private float normalizeFactor;
     private int freqFeatureSize;
-    private List<Integer> nodePosList;
-    private List<Integer> weight1;
-    private List<Integer> weight2;
-    private DoubleArray dicDa;
-    private DoubleArray featureDa;
+    private IntBuffer nodePosList;
+    private IntBuffer weight1;
+    private IntBuffer weight2;
+    private IntBuffer dicDa;
+    private IntBuffer featureDa;
+    // created once rather than for each traversal
+    private final IntBinaryOperator stepFunction = this::step;
 
     public static SVMModel openBinaryModel(String path) throws IOException {
-        ByteBuffer bytes = ByteUtil.readAsByteBuffer(path);
+        return openBinaryModel(path, false);
+    }
+
+    /**
+     * Load a binary model.
+     *
+     * @param path
+     *            the path of the model file
+     * @param mmap
+     *            if true, the file is mapped into memory and the model refers to
+     *            the mapped region without copying it
+     * @return the loaded model
+     * @throws IOException
+     *             if the file cannot be read or is broken
+     */
+    public static SVMModel openBinaryModel(String path, boolean mmap) throws IOException {
+        ByteBuffer bytes = ByteUtil.readAsByteBuffer(path, mmap);
         int magic = bytes.getInt(); // unsigned int
         if ((magic ^ DICTIONARY_MAGIC_ID) != bytes.limit()) {
             throw new IOException("dictionary file is broken");
@@ -63,29 +79,14 @@ public class FastSVMModel implements SVMModel {
         int dicDaSize = bytes.getInt(); // unsigned int
         int featureDaSize = bytes.getInt(); // unsigned int
 
-        int size = dicDaSize / 4;
-        IntBuffer array = ByteUtil.getIntBuffer(bytes, dicDaSize);
-        model.dicDa = new DoubleArray();
-        model.dicDa.setArray(array, size);
+        model.dicDa = ByteUtil.getIntBuffer(bytes, dicDaSize);
 
-        size = featureDaSize / 4;
-        array = ByteUtil.getIntBuffer(bytes, featureDaSize);
-        model.featureDa = new DoubleArray();
-        model.featureDa.setArray(array, size);
+        model.featureDa = ByteUtil.getIntBuffer(bytes, featureDaSize);
 
-        model.nodePosList = new ArrayList<>();
-        for (int i = 0; i < featureSize; i++) {
-            model.nodePosList.add(bytes.getInt()); // unsigned int
-        }
-        model.weight1 = new ArrayList<>();
-        for (int i = 0; i < featureSize; i++) {
-            model.weight1.add(bytes.getInt());
-        }
-        model.weight2 = new ArrayList<>();
-        long len = (model.freqFeatureSize * (model.freqFeatureSize - 1)) / 2;
-        for (int i = 0; i < len; i++) {
-            model.weight2.add(bytes.getInt());
-        }
+        model.nodePosList = ByteUtil.getIntBuffer(bytes, featureSize * 4); // unsigned int
+        model.weight1 = ByteUtil.getIntBuffer(bytes, featureSize * 4);
+        long len = ((long) model.freqFeatureSize * (model.freqFeatureSize - 1)) / 2;
+        model.weight2 = ByteUtil.getIntBuffer(bytes, (int) (len * 4));
         if (bytes.position() != bytes.limit()) {
             throw new IOException("The offset is not equal to the length of byte array.");
         }
@@ -105,87 +106,151 @@ public class FastSVMModel implements SVMModel {
         return parameters;
     }
 
-    class FeatureKey {
-        byte[] id = new byte[7];
-        byte len;
+    @Override
+    public int id(CharSequence key) {
+        return idAt(traverse(ROOT_NODE, key, 0, key.length()));
+    }
+
+    @Override
+    public int id(byte[] key, int offset, int length) {
+        return idAt(traverse(ROOT_NODE, key, offset, length));
+    }
+
+    @Override
+    public int traverse(int node, CharSequence key, int begin, int end) {
+        return ByteUtil.encodeUtf8(key, begin, end, node, stepFunction);
+    }
+
+    @Override
+    public int traverse(int node, byte[] key, int offset, int length) {
+        for (int i = offset; i < offset + length && node >= 0; i++) {
+            node = step(node, Byte.toUnsignedInt(key[i]));
+        }
+        return node;
     }
 
-    private FeatureKey encodeBER(int value) {
-        FeatureKey featureKey = new FeatureKey();
-        byte length = 0;
-        ++value;
-        byte[] array = featureKey.id;
-        array[length++] = (byte) (value & 0x7f);
-        while ((value >>= 7) > 0) {
-            ++value;
-            array[length - 1] |= 0x80;
-            array[length++] = (byte) (value & 0x7f);
+    /**
+     * Moves from a node of the feature dictionary by a label.
+     *
+     * @return the next node, or -1 if there is no such node
+     */
+    private int step(int node, int label) {
+        if (node < 0) {
+            return -1;
         }
-        featureKey.len = length;
-        return featureKey;
+        int next = node ^ unitOffset(dicDa.get(node)) ^ label;
+        return unitLabel(dicDa.get(next)) == label ? next : -1;
     }
 
     @Override
-    public int id(String key) {
-        return dicDa.exactMatchSearch(key.getBytes(StandardCharsets.UTF_8))[0];
+    public int idAt(int node) {
+        if (node < 0) {
+            return -1;
+        }
+        int unit = dicDa.get(node);
+        if (!unitHasLeaf(unit)) {
+            return -1;
+        }
+        return unitValue(dicDa.get(node ^ unitOffset(unit)));
     }
 
     @Override
-    public double classify(List<Integer> x) {
-        int size = x.size();
+    public double classify(int[] x, int length) {
         int score = -bias;
-        List<FeatureKey> keys = new ArrayList<>(size);
-        int freqSize = encodeKeys(x, keys) + 1;
+        int freqSize = Math.min(lastFreqFeature(x, length) + 1, length);
 
         score += classify1(x, freqSize);
-        score += classify2(x, keys, freqSize);
+        score += classify2(x, length, freqSize);
 
         return score * normalizeFactor;
     }
 
-    private int encodeKeys(List<Integer> x, List<FeatureKey> keys) {
+    private int lastFreqFeature(int[] x, int length) {
         int freqSize = 0;
-        for (int i = 0; i < x.size(); ++i) {
-            if (x.get(i) < freqFeatureSize) {
+        for (int i = 0; i < length; ++i) {
+            if (x[i] < freqFeatureSize) {
                 freqSize = i;
             }
-            keys.add(encodeBER(x.get(i)));
         }
         return freqSize;
     }
 
-    private int classify1(List<Integer> x, int freqSize) {
+    private int classify1(int[] x, int freqSize) {
         int score = 0;
         int kOffset = 2 * freqFeatureSize - 3;
         for (int i1 = 0; i1 < freqSize; ++i1) {
-            score += weight1.get(x.get(i1));
-            int pos = x.get(i1) * (kOffset - x.get(i1)) / 2 - 1;
+            score += weight1.get(x[i1]);
+            int pos = x[i1] * (kOffset - x[i1]) / 2 - 1;
             for (int i2 = i1 + 1; i2 < freqSize; ++i2) {
-                score += weight2.get(pos + x.get(i2));
+                score += weight2.get(pos + x[i2]);
             }
         }
         return score;
     }
 
-    private int classify2(List<Integer> x, List<FeatureKey> keys, int freqSize) {
+    private int classify2(int[] x, int length, int freqSize) {
         int score = 0;
-        for (int i1 = 0; i1 < x.size(); ++i1) {
+        for (int i1 = 0; i1 < length; ++i1) {
             if (i1 >= freqSize) {
-                score += weight1.get(x.get(i1));
+                score += weight1.get(x[i1]);
             }
-            int nodePos = nodePosList.get(x.get(i1));
+            int nodePos = nodePosList.get(x[i1]);
             if (nodePos == 0) {
                 continue;
             }
-            for (int i2 = (i1 < freqSize) ? freqSize : i1 + 1; i2 < x.size(); ++i2) {
-                int keyPos = 0;
-                FeatureKey k = keys.get(i2);
-                DoubleArray.TraverseResult result = featureDa.traverse(k.id, keyPos, k.len, nodePos);
-                if (result.result >= 0) {
-                    score += (result.result - PKE_BASE);
+            for (int i2 = (i1 < freqSize) ? freqSize : i1 + 1; i2 < length; ++i2) {
+                int result = traverseFeature(nodePos, x[i2]);
+                if (result >= 0) {
+                    score += (result - PKE_BASE);
                 }
             }
         }
         return score;
     }
+
+    /**
+     * Looks up the BER encoded {@code value} in the feature double-array from
+     * {@code nodePos}. The key bytes are generated on the fly so that no key array
+     * is allocated.
+     */
+    private int traverseFeature(int nodePos, int value) {
+        int id = nodePos;
+        int unit = featureDa.get(id);
+        int v = value + 1;
+        boolean hasNext = true;
+        while (hasNext) {
+            int label = v & 0x7f;
+            v >>= 7;
+            hasNext = v > 0;
+            if (hasNext) {
+                ++v;
+                label |= 0x80;
+            }
+            id ^= unitOffset(unit) ^ label;
+            unit = featureDa.get(id);
+            if (unitLabel(unit) != label) {
+                return -2;
+            }
+        }
+        if (!unitHasLeaf(unit)) {
+            return -1;
+        }
+        return unitValue(featureDa.get(id ^ unitOffset(unit)));
+    }
+
+    private static boolean unitHasLeaf(int unit) {
+        return ((unit >>> 8) & 1) == 1;
+    }
+
+    private static int unitValue(int unit) {
+        return unit & ((1 << 31) - 1);
+    }
+
+    private static int unitLabel(int unit) {
+        return unit & ((1 << 31) | 0xff);
+    }
+
+    private static int unitOffset(int unit) {
+        return (unit >>> 10) << ((unit & (1 << 9)) >>> 6);
+    }
 }
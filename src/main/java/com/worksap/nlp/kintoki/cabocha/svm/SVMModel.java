@@ -20,7 +20,97 @@ import java.util.List;
 
 public interface SVMModel {
 
-    int id(String key);
+    /**
+     * The node of the feature dictionary where every key starts.
+     */
+    int ROOT_NODE = 0;
 
-    double classify(List<Integer> x);
+    /**
+     * Returns the ID of a feature.
+     *
+     * @param key
+     *            the feature string
+     * @return the feature ID, or -1 if the model does not know the feature
+     */
+    int id(CharSequence key);
+
+    /**
+     * Returns the ID of a feature given in UTF-8.
+     *
+     * @param key
+     *            the buffer which holds the feature string
+     * @param offset
+     *            the offset of the feature string in the buffer
+     * @param length
+     *            the length of the feature string in bytes
+     * @return the feature ID, or -1 if the model does not know the feature
+     */
+    int id(byte[] key, int offset, int length);
+
+    /**
+     * Walks the feature dictionary from a node by the UTF-8 bytes of a part of
+     * a key. Walking a shared prefix once and resuming from the returned node
+     * for each suffix gives the same result as looking up the whole keys.
+     *
+     * @param node
+     *            the node to start from, {@link #ROOT_NODE} for the beginning
+     *            of a key
+     * @param key
+     *            the characters to walk
+     * @param begin
+     *            the index of the first character to walk
+     * @param end
+     *            the index next to the last character to walk; a surrogate
+     *            pair must not be split
+     * @return the reached node, or a negative value if no feature starts with
+     *         the walked characters
+     */
+    int traverse(int node, CharSequence key, int begin, int end);
+
+    /**
+     * Walks the feature dictionary from a node by UTF-8 bytes.
+     *
+     * @param node
+     *            the node to start from, {@link #ROOT_NODE} for the beginning
+     *            of a key
+     * @param key
+     *            the buffer which holds the bytes
+     * @param offset
+     *            the offset of the bytes in the buffer
+     * @param length
+     *            the number of the bytes to walk
+     * @return the reached node, or a negative value if no feature starts with
+     *         the walked bytes
+     * @see #traverse(int, CharSequence, int, int)
+     */
+    int traverse(int node, byte[] key, int offset, int length);
+
+    default int traverse(int node, CharSequence key) {
+        return traverse(node, key, 0, key.length());
+    }
+
+    /**
+     * Returns the ID of the feature whose key ends at a node.
+     *
+     * @param node
+     *            the node returned by {@link #traverse}
+     * @return the feature ID, or -1 if no feature ends at the node
+     */
+    int idAt(int node);
+
+    /**
+     * Classify a feature vector.
+     *
+     * @param features
+     *            the feature IDs, sorted in ascending order without duplicates
+     * @param length
+     *            the number of valid elements in {@code features}
+     * @return the score of the vector
+     */
+    double classify(int[] features, int length);
+
+    default double classify(List<Integer> x) {
+        int[] features = x.stream().mapToInt(Integer::intValue).toArray();
+        return classify(features, features.length);
+    }
 }
@@ -19,11 +19,15 @@ package com.worksap.nlp.kintoki.cabocha.util;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntBinaryOperator;
 
 public class ByteUtil {
     private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
@@ -42,17 +46,140 @@ public class ByteUtil {
         }
     }
 
+    /**
+     * Map a whole file into memory as a read-only buffer. The pages are shared with
+     * the page cache, so other processes mapping the same file do not need their
+     * own copy.
+     *
+     * @param path
+     *            the path of the file
+     * @return the read-only buffer over the mapped file
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public static ByteBuffer mapAsByteBuffer(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            bytes.order(ORDER);
+            return bytes;
+        }
+    }
+
+    public static ByteBuffer readAsByteBuffer(String path, boolean mmap) throws IOException {
+        return mmap ? mapAsByteBuffer(path) : readAsByteBuffer(path);
+    }
+
     public static String getString(ByteBuffer bytes, int byteSize, Charset charset) {
         byte[] array = new byte[byteSize];
         bytes.get(array);
         return new String(array, charset);
     }
 
+    /**
+     * Encode characters into UTF-8 the same way as
+     * {@link String#getBytes(Charset)}, without allocating. A lone surrogate is
+     * encoded as '?'.
+     *
+     * @param chars
+     *            the characters to be encoded
+     * @param dst
+     *            the destination, which must have at least
+     *            {@code 3 * chars.length()} bytes from {@code offset}
+     * @param offset
+     *            the offset in the destination
+     * @return the offset next to the last encoded byte
+     */
+    public static int encodeUtf8(CharSequence chars, byte[] dst, int offset) {
+        // not through the step function, which would be created for each call
+        int p = offset;
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                dst[p++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[p++] = (byte) (0xc0 | (c >> 6));
+                dst[p++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, chars.charAt(++i));
+                    dst[p++] = (byte) (0xf0 | (cp >> 18));
+                    dst[p++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    dst[p++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    dst[p++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    dst[p++] = '?';
+                }
+            } else {
+                dst[p++] = (byte) (0xe0 | (c >> 12));
+                dst[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                dst[p++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Encode characters into UTF-8 as {@link #encodeUtf8(CharSequence, byte[], int)}
+     * does, and pass the bytes one by one to a step function, which for example
+     * walks a trie without storing the bytes.
+     *
+     * @param chars
+     *            the characters to be encoded
+     * @param begin
+     *            the index of the first character
+     * @param end
+     *            the index next to the last character
+     * @param state
+     *            the state given to the first step
+     * @param step
+     *            the function from a state and a byte, as an unsigned value, to
+     *            the next state; it must return a negative state for a negative
+     *            one, and the encoding stops at the end of the character
+     * @return the state returned by the last step, or {@code state} if there are
+     *         no characters
+     */
+    public static int encodeUtf8(CharSequence chars, int begin, int end, int state, IntBinaryOperator step) {
+        for (int i = begin; i < end && state >= 0; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                state = step.applyAsInt(state, c);
+            } else if (c < 0x800) {
+                state = step.applyAsInt(state, 0xc0 | (c >> 6));
+                state = step.applyAsInt(state, 0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, chars.charAt(++i));
+                    state = step.applyAsInt(state, 0xf0 | (cp >> 18));
+                    state = step.applyAsInt(state, 0x80 | ((cp >> 12) & 0x3f));
+                    state = step.applyAsInt(state, 0x80 | ((cp >> 6) & 0x3f));
+                    state = step.applyAsInt(state, 0x80 | (cp & 0x3f));
+                } else {
+                    state = step.applyAsInt(state, '?');
+                }
+            } else {
+                state = step.applyAsInt(state, 0xe0 | (c >> 12));
+                state = step.applyAsInt(state, 0x80 | ((c >> 6) & 0x3f));
+                state = step.applyAsInt(state, 0x80 | (c & 0x3f));
+            }
+        }
+        return state;
+    }
+
     public static IntBuffer getIntBuffer(ByteBuffer bytes, int byteSize) {
         ByteBuffer newBytes = bytes.slice();
+        newBytes.limit(byteSize);
         newBytes.order(bytes.order());
         bytes.position(bytes.position() + byteSize);
         return newBytes.asIntBuffer();
     }
 
+    public static FloatBuffer getFloatBuffer(ByteBuffer bytes, int byteSize) {
+        ByteBuffer newBytes = bytes.slice();
+        newBytes.limit(byteSize);
+        newBytes.order(bytes.order());
+        bytes.position(bytes.position() + byteSize);
+        return newBytes.asFloatBuffer();
+    }
+
 }
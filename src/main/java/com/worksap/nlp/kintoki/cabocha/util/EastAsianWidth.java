@@ -16,66 +16,169 @@
 
 package com.worksap.nlp.kintoki.cabocha.util;
 
-import java.io.InputStream;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.io.InputStream;
+import java.util.Arrays;
 
+/**
+ * Display width of text, where the characters of East Asian Width F, W and A
+ * are two columns wide and the others are one.
+ *
+ * <p>
+ * The widths of the BMP are held in a two-level bit table: the upper byte of a
+ * code point selects a block of 256 bits, and identical blocks are shared. The
+ * wide ranges of the supplementary planes are binary searched.
+ */
 public class EastAsianWidth {
-    static {
-        wideRanges = new ArrayList<>();
-        try {
-            loadDefinition(EastAsianWidth.class.getResourceAsStream("/EastAsianWidth.txt"));
-        } catch (Exception ignore) {
-            // do nothing
-            // getEastAsianWidth() always return String#length()
+
+    private static final int BLOCK_SHIFT = 8;
+    private static final int BLOCK_WORDS = (1 << BLOCK_SHIFT) / Long.SIZE;
+    private static final int BMP_SIZE = 0x10000;
+
+    static final String RESOURCE = "/EastAsianWidth.bin";
+
+    /**
+     * The tables, loaded on the first lookup rather than when this class is
+     * initialized. They are built from the sorted and disjoint wide ranges that
+     * the build generates from EastAsianWidth.txt. A missing or broken resource
+     * fails the initialization instead of silently making every character
+     * narrow.
+     */
+    static final class Tables {
+        /** block number of each 256 code points of the BMP */
+        static final char[] bmpIndex;
+        /** bits of the distinct blocks, BLOCK_WORDS words per block */
+        static final long[] bmpBlocks;
+        /** sorted and disjoint wide ranges [begin, end) of the supplementary planes */
+        static final int[] supplementaryBegins;
+        static final int[] supplementaryEnds;
+
+        static {
+            int[][] ranges = loadDefaultRanges();
+
+            char[] index = new char[BMP_SIZE >>> BLOCK_SHIFT];
+            long[] blocks = buildBlocks(ranges, index);
+            bmpIndex = index;
+            bmpBlocks = blocks;
+
+            int first = 0;
+            while (first < ranges.length && ranges[first][1] <= BMP_SIZE) {
+                first++;
+            }
+            supplementaryBegins = new int[ranges.length - first];
+            supplementaryEnds = new int[ranges.length - first];
+            for (int i = first; i < ranges.length; i++) {
+                supplementaryBegins[i - first] = Math.max(ranges[i][0], BMP_SIZE);
+                supplementaryEnds[i - first] = ranges[i][1];
+            }
+        }
+
+        private Tables() {
         }
     }
 
-    static class Range {
-        private int begin;
-        private int end;
+    private EastAsianWidth() {
+    }
 
-        Range(int begin, int end) {
-            this.begin = begin;
-            this.end = end;
+    public static int getEastAsianWidth(String text) {
+        int width = 0;
+        for (int i = 0; i < text.length();) {
+            int c = text.codePointAt(i);
+            width += isWide(c) ? 2 : 1;
+            i += Character.charCount(c);
         }
+        return width;
+    }
 
-        boolean contains(int i) {
-            return begin <= i && i < end;
+    /**
+     * Returns whether a code point is two columns wide.
+     *
+     * @param codePoint
+     *            the code point
+     * @return {@code true} if the East Asian Width of the code point is F, W or A
+     */
+    public static boolean isWide(int codePoint) {
+        if (codePoint < BMP_SIZE) {
+            int block = Tables.bmpIndex[codePoint >>> BLOCK_SHIFT];
+            long word = Tables.bmpBlocks[block * BLOCK_WORDS + ((codePoint >>> 6) & (BLOCK_WORDS - 1))];
+            return (word & (1L << codePoint)) != 0;
+        }
+        int i = Arrays.binarySearch(Tables.supplementaryBegins, codePoint);
+        if (i < 0) {
+            i = -i - 2;
         }
+        return i >= 0 && codePoint < Tables.supplementaryEnds[i];
     }
 
-    static List<Range> wideRanges;
+    /**
+     * Builds the bit table of the BMP from wide ranges [begin, end), and returns
+     * the distinct blocks.
+     */
+    static long[] buildBlocks(int[][] ranges, char[] index) {
+        long[] bits = new long[BMP_SIZE / Long.SIZE];
+        for (int[] range : ranges) {
+            for (int c = range[0]; c < Math.min(range[1], BMP_SIZE); c++) {
+                bits[c >>> 6] |= 1L << c;
+            }
+        }
 
-    private EastAsianWidth() {
+        long[] blocks = new long[index.length * BLOCK_WORDS];
+        int distinct = 0;
+        for (int i = 0; i < index.length; i++) {
+            int offset = i * BLOCK_WORDS;
+            int j = 0;
+            while (j < distinct && !equalBlocks(blocks, j * BLOCK_WORDS, bits, offset)) {
+                j++;
+            }
+            if (j == distinct) {
+                System.arraycopy(bits, offset, blocks, distinct * BLOCK_WORDS, BLOCK_WORDS);
+                distinct++;
+            }
+            index[i] = (char) j;
+        }
+        return Arrays.copyOf(blocks, distinct * BLOCK_WORDS);
     }
 
-    public static int getEastAsianWidth(String text) {
-        return text.codePoints().map(c -> wideRanges.stream().anyMatch(r -> r.contains(c)) ? 2 : 1).sum();
+    private static boolean equalBlocks(long[] a, int aOffset, long[] b, int bOffset) {
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            if (a[aOffset + i] != b[bOffset + i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static void loadDefinition(InputStream input) throws IOException {
-        try (Scanner scanner = new Scanner(input)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine().replaceFirst("\\s*#.*", "");
-                if (line.isEmpty()) {
-                    continue;
-                }
-                String[] columns = line.split(";");
-                if (columns[1].equals("F") || columns[1].equals("W") || columns[1].equals("A")) {
-                    String[] range = columns[0].split("\\.\\.");
-                    if (range.length == 1) {
-                        int codePoints = Integer.parseInt(range[0], 16);
-                        wideRanges.add(new Range(codePoints, codePoints + 1));
-                    } else {
-                        int beginCodePoint = Integer.parseInt(range[0], 16);
-                        int endCodePoint = Integer.parseInt(range[1], 16);
-                        wideRanges.add(new Range(beginCodePoint, endCodePoint + 1));
-                    }
+    static int[][] loadDefaultRanges() {
+        InputStream input = EastAsianWidth.class.getResourceAsStream(RESOURCE);
+        if (input == null) {
+            throw new IllegalStateException(RESOURCE + " is not found in the classpath");
+        }
+        try {
+            return loadRanges(input);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot read " + RESOURCE, e);
+        }
+    }
+
+    /**
+     * Reads the ranges generated by the build: the number of the ranges, then the
+     * begin and the end of each range, as big-endian ints.
+     */
+    static int[][] loadRanges(InputStream input) throws IOException {
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(input))) {
+            int size = data.readInt();
+            int[][] ranges = new int[size][];
+            for (int i = 0; i < size; i++) {
+                int begin = data.readInt();
+                int end = data.readInt();
+                if (begin >= end || (i > 0 && begin < ranges[i - 1][1])) {
+                    throw new IOException("invalid range: " + begin + ".." + end);
                 }
+                ranges[i] = new int[] { begin, end };
             }
+            return ranges;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative long values.
+ *
+ * <p>
+ * Values below {@value #LINEAR_SIZE} are counted exactly. Larger values are
+ * counted in log-linear buckets, each power of two being split into
+ * {@value #SUB_BUCKET_SIZE} buckets, so that the relative error of a reported
+ * value is less than 1/{@value #SUB_BUCKET_SIZE}. Recording is wait-free
+ * except for the maximum and minimum, which are updated by CAS loops.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKET_SIZE = 1 << SUB_BUCKET_BITS;
+    static final int LINEAR_SIZE = SUB_BUCKET_SIZE * 2;
+    private static final int LINEAR_BITS = SUB_BUCKET_BITS + 1;
+    private static final int BUCKET_SIZE = LINEAR_SIZE + (63 - LINEAR_BITS) * SUB_BUCKET_SIZE;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_SIZE);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * Record a value.
+     *
+     * @param value
+     *            the value, must not be negative
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value: " + value);
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+        while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_SIZE) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_SIZE;
+        return LINEAR_SIZE + (exponent - LINEAR_BITS) * SUB_BUCKET_SIZE + subBucket;
+    }
+
+    /** Returns the largest value counted in a bucket. */
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_SIZE) {
+            return index;
+        }
+        int exponent = (index - LINEAR_SIZE) / SUB_BUCKET_SIZE + LINEAR_BITS;
+        int subBucket = (index - LINEAR_SIZE) % SUB_BUCKET_SIZE;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKET_SIZE + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Take a snapshot of the recorded values. The values recorded concurrently
+     * may be partially reflected.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_SIZE];
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, count.sum(), sum.sum(), max.get(), min.get());
+    }
+
+    /**
+     * An immutable view of the values recorded in a {@link Histogram}.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+        private final long min;
+
+        Snapshot(long[] counts, long count, long sum, long max, long min) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.min = min;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the largest recorded value.
+         *
+         * @return the largest value, or 0 if nothing is recorded
+         */
+        public long getMax() {
+            return count == 0 ? 0 : max;
+        }
+
+        /**
+         * Returns the smallest recorded value.
+         *
+         * @return the smallest value, or 0 if nothing is recorded
+         */
+        public long getMin() {
+            return count == 0 ? 0 : min;
+        }
+
+        /**
+         * Returns the mean of the recorded values.
+         *
+         * @return the mean, or 0 if nothing is recorded
+         */
+        public double getMean() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+
+        /**
+         * Returns the value at a percentile, that is the upper bound of the bucket
+         * which contains it.
+         *
+         * @param percentile
+         *            the percentile between 0 and 100
+         * @return the value, or 0 if nothing is recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (percentile < 0.0 || percentile > 100.0) {
+                throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+            }
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), getMax());
+                }
+            }
+            return getMax();
+        }
+    }
+}
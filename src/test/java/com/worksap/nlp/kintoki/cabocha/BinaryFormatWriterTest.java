@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class BinaryFormatWriterTest {
+
+    private static final String INPUT = "* 0 1D 0/1 1.5\n太郎\t名詞,固有名詞,人名,名,*,*,太郎,タロウ,タロー\nは\t助詞,係助詞,*,*,*,*,は,ハ,ワ\n"
+            + "* 1 -1D 0/1 -0.25\n太郎\t名詞,固有名詞,人名,名,*,*,太郎,タロウ,タロー\nが\t助詞,格助詞,一般,*,*,*,が,ガ,ガ\n";
+
+    private Tree tree(String input, InputLayerType inputLayer, OutputLayerType outputLayer) {
+        Tree tree = new Tree();
+        tree.read(input, inputLayer);
+        tree.setOutputLayer(outputLayer);
+        return tree;
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryFormatWriter writer = new BinaryFormatWriter(bytes, 2)) {
+            writer.write(tree(INPUT, InputLayerType.INPUT_DEP, OutputLayerType.OUTPUT_DEP));
+            writer.write(tree("abc", InputLayerType.INPUT_RAW_SENTENCE, OutputLayerType.OUTPUT_RAW_SENTENCE));
+            writer.write(tree(INPUT, InputLayerType.INPUT_POS, OutputLayerType.OUTPUT_POS));
+        }
+
+        try (BinaryFormatReader reader = new BinaryFormatReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Tree tree = reader.read();
+            assertEquals(OutputLayerType.OUTPUT_DEP, tree.getOutputLayer());
+            assertEquals(INPUT + "EOS\n", tree.toString(FormatType.FORMAT_LATTICE));
+            assertEquals(2, tree.chunk(1).getTokenPos());
+            assertEquals("名詞", tree.token(0).getFeatureList().get(0));
+
+            tree = reader.read();
+            assertEquals(OutputLayerType.OUTPUT_RAW_SENTENCE, tree.getOutputLayer());
+            assertEquals("abc\n", tree.toString(FormatType.FORMAT_LATTICE));
+
+            tree = reader.read();
+            assertEquals(0, tree.getChunkSize());
+            assertEquals(4, tree.getTokenSize());
+            assertEquals("が", tree.token(3).getSurface());
+
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void writeEmpty() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BinaryFormatWriter(bytes).close();
+        assertEquals(8, bytes.size());
+        try (BinaryFormatReader reader = new BinaryFormatReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertNull(reader.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readInvalidHeader() throws IOException {
+        new BinaryFormatReader(new ByteArrayInputStream(new byte[] { 'a', 'b', 'c', 'd', 0, 0, 0, 1 }));
+    }
+
+    @Test(expected = IOException.class)
+    public void readNegativeTokenSize() throws IOException {
+        read(record(9, -1, 0));
+    }
+
+    @Test(expected = IOException.class)
+    public void readNegativeChunkSize() throws IOException {
+        read(record(9, 0, 0, -1));
+    }
+
+    @Test(expected = IOException.class)
+    public void readInvalidRecordLength() throws IOException {
+        // a record without tokens and chunks is 13 bytes long
+        read(record(12, 0, 0, 0));
+    }
+
+    /**
+     * Returns a stream of a batch which has a record of the given length and
+     * ints, and an empty string.
+     */
+    private static byte[] record(int length, int... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(BinaryFormatWriter.MAGIC);
+            output.writeInt(BinaryFormatWriter.VERSION);
+            output.writeInt(1);
+            output.writeInt(1);
+            output.writeInt(0);
+            output.writeInt(length);
+            output.writeByte(OutputLayerType.OUTPUT_DEP.getValue());
+            for (int value : values) {
+                output.writeInt(value);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void read(byte[] bytes) throws IOException {
+        try (BinaryFormatReader reader = new BinaryFormatReader(new ByteArrayInputStream(bytes))) {
+            reader.read();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toStringWithBinary() {
+        tree(INPUT, InputLayerType.INPUT_DEP, OutputLayerType.OUTPUT_DEP).toString(FormatType.FORMAT_BINARY);
+    }
+}
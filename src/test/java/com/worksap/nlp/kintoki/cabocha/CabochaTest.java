@@ -21,10 +21,22 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
@@ -457,6 +469,17 @@ public class CabochaTest {
         }
     }
 
+    @Test
+    public void testMainWithThreads() throws IOException {
+        String singleFile = outputFile + ".single";
+        String[] args = { inputFile, inputFile, "-r", configPath, "-o", singleFile, "-I0", "-O4", "-f1" };
+        Cabocha.main(args);
+        args = new String[] { inputFile, inputFile, "-r", configPath, "-o", outputFile, "-I0", "-O4", "-f1", "-t4" };
+        Cabocha.main(args);
+        assertEquals(new String(Files.readAllBytes(Paths.get(singleFile)), StandardCharsets.UTF_8),
+                new String(Files.readAllBytes(Paths.get(outputFile)), StandardCharsets.UTF_8));
+    }
+
     @Test
     public void testMainFromCaboChaFormat() throws IOException {
         String[] args = { inputFile2, "-r", configPath, "-o", outputFile, "-I2", "-O4", "-f2" };
@@ -475,6 +498,88 @@ public class CabochaTest {
         }
     }
 
+    @Test
+    public void testMainToBinary() throws IOException {
+        String[] args = { inputFile, inputFile, "-r", configPath, "-o", outputFile, "-I0", "-O4", "-f6" };
+        Cabocha.main(args);
+        assertEquals(readLattice(inputFile + ".lattice"), readBinary(outputFile));
+    }
+
+    @Test
+    public void testMainToBinaryWithThreads() throws IOException {
+        String[] args = { inputFile, inputFile, "-r", configPath, "-o", outputFile, "-I0", "-O4", "-f6", "-t4" };
+        Cabocha.main(args);
+        assertEquals(readLattice(inputFile + ".lattice"), readBinary(outputFile));
+    }
+
+    private String readLattice(String latticeFile) throws IOException {
+        String[] args = { inputFile, inputFile, "-r", configPath, "-o", latticeFile, "-I0", "-O4", "-f1" };
+        Cabocha.main(args);
+        return new String(Files.readAllBytes(Paths.get(latticeFile)), StandardCharsets.UTF_8);
+    }
+
+    private static String readBinary(String binaryFile) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (BinaryFormatReader reader = new BinaryFormatReader(new FileInputStream(binaryFile))) {
+            Tree tree;
+            while ((tree = reader.read()) != null) {
+                tree.writeTo(sb, FormatType.FORMAT_LATTICE);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testMainFlushesStdout() throws Exception {
+        assertEquals("EOS", parseFromStdin("-t1"));
+    }
+
+    @Test
+    public void testMainFlushesStdoutWithThreads() throws Exception {
+        assertEquals("EOS", parseFromStdin("-t4"));
+    }
+
+    /**
+     * Writes a sentence to stdin of the command, and returns the last line of its
+     * result read from stdout while stdin is still open.
+     */
+    private String parseFromStdin(String threads) throws Exception {
+        InputStream stdin = System.in;
+        PrintStream stdout = System.out;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (PipedOutputStream input = new PipedOutputStream();
+                PipedInputStream output = new PipedInputStream(1 << 16)) {
+            System.setIn(new PipedInputStream(input, 1 << 16));
+            System.setOut(new PrintStream(new PipedOutputStream(output), true));
+            String[] args = { "-r", configPath, "-I0", "-O4", "-f1", threads };
+            Future<?> main = executor.submit(() -> {
+                Cabocha.main(args);
+                return null;
+            });
+
+            input.write("太郎は花子が読んでいる本を次郎に渡した。\n".getBytes(StandardCharsets.UTF_8));
+            input.flush();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(output, StandardCharsets.UTF_8));
+            Future<String> result = executor.submit(() -> {
+                String line;
+                String last = null;
+                while ((line = reader.readLine()) != null && !line.equals("EOS")) {
+                    last = line;
+                }
+                return line == null ? last : line;
+            });
+            String last = result.get(30, TimeUnit.SECONDS);
+
+            input.close();
+            main.get(30, TimeUnit.SECONDS);
+            return last;
+        } finally {
+            System.setIn(stdin);
+            System.setOut(stdout);
+            executor.shutdownNow();
+        }
+    }
+
     @Test(expected = FileNotFoundException.class)
     public void testMainWithInvalidInputFile() throws IOException {
         String[] args = { "foo", "-r", configPath, "-o", outputFile, "-I0", "-O4", "-f2" };
@@ -16,12 +16,18 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertArrayEquals;
 
@@ -52,6 +58,12 @@ public class ChunkerTest {
         tree = new Tree();
     }
 
+    @After
+    public void tearDown() throws IOException {
+        morpher.close();
+        chunker.close();
+    }
+
     @Test
     public void parse() {
         final String sent = "太郎は花子が読んでいる本を次郎に渡した。";
@@ -63,4 +75,29 @@ public class ChunkerTest {
         assertArrayEquals(new String[] { "太郎は", "花子が", "読んでいる", "本を", "次郎に", "渡した。" },
                 TestHelper.getChunkStrings(tree).stream().toArray(String[]::new));
     }
+
+    @Test
+    public void parseWithSharedInstance() throws Exception {
+        tree.setSentence("太郎は花子が読んでいる本を次郎に渡した。");
+        morpher.parse(tree);
+        String lattice = tree.toString(FormatType.FORMAT_LATTICE);
+        final String input = lattice.substring(0, lattice.lastIndexOf("EOS"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Tree>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            results.add(executor.submit(() -> {
+                Tree t = new Tree();
+                t.read(input, InputLayerType.INPUT_POS);
+                chunker.parse(t);
+                return t;
+            }));
+        }
+        executor.shutdown();
+
+        for (Future<Tree> result : results) {
+            assertArrayEquals(new String[] { "太郎は", "花子が", "読んでいる", "本を", "次郎に", "渡した。" },
+                    TestHelper.getChunkStrings(result.get()).stream().toArray(String[]::new));
+        }
+    }
 }
@@ -24,9 +24,17 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
@@ -35,7 +43,7 @@ public class DependencyParserTest {
     @Rule
     public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
-    Tree tree = new Tree();
+    Tree tree;
     Param param = new Param();
 
     @Before
@@ -43,7 +51,11 @@ public class DependencyParserTest {
         TestUtils.copyResources(temporaryFolder.getRoot().toPath());
         String configPath = TestUtils.buildConfig(temporaryFolder.getRoot().toPath());
         param.loadConfig(configPath);
+        tree = createTree();
+    }
 
+    private Tree createTree() throws IOException {
+        Tree tree = new Tree();
         List<Chunk> chunks = tree.getChunks();
         Chunk chunk = new Chunk();
         Token token = new Token();
@@ -164,6 +176,7 @@ public class DependencyParserTest {
         Selector selector = new Selector();
         selector.open(null);
         selector.parse(tree);
+        return tree;
     }
 
     @Test
@@ -173,19 +186,147 @@ public class DependencyParserTest {
         assertNotNull(svmModel);
     }
 
+    @Test
+    public void classify() throws IOException {
+        String modelFile = param.getString(Param.PARSER_MODEL);
+        SVMModel svmModel = FastSVMModel.openBinaryModel(modelFile);
+        List<Integer> x = Stream.of("DIST:1", "GNB:1", "SHS:太郎", "SHP0:名詞", "DHS:花子", "DFS:が").map(svmModel::id)
+                .filter(id -> id >= 0).sorted().distinct().collect(Collectors.toList());
+        int[] features = new int[x.size() + 2];
+        for (int i = 0; i < x.size(); i++) {
+            features[i] = x.get(i);
+        }
+        features[x.size()] = -1;
+        features[x.size() + 1] = -1;
+
+        assertEquals(svmModel.classify(x), svmModel.classify(features, x.size()), 0.0);
+    }
+
+    @Test
+    public void traverse() throws IOException {
+        SVMModel svmModel = FastSVMModel.openBinaryModel(param.getString(Param.PARSER_MODEL));
+        int id = svmModel.id("SHS:太郎");
+        assertEquals(125, id);
+        assertEquals(id, svmModel.id(new StringBuilder("SHS:太郎")));
+        byte[] key = "xSHS:太郎".getBytes(StandardCharsets.UTF_8);
+        assertEquals(id, svmModel.id(key, 1, key.length - 1));
+
+        int node = svmModel.traverse(SVMModel.ROOT_NODE, "SHS:");
+        assertEquals(id, svmModel.idAt(svmModel.traverse(node, "太郎")));
+        assertEquals(svmModel.id("SHS:花子"), svmModel.idAt(svmModel.traverse(node, "花子")));
+        assertEquals(-1, svmModel.idAt(node));
+        assertEquals(-1, svmModel.idAt(svmModel.traverse(node, "\u0000")));
+        assertEquals(-1, svmModel.id("XYZ:太郎"));
+    }
+
+    @Test
+    public void buildChunkInfo() throws IOException {
+        SVMModel svmModel = FastSVMModel.openBinaryModel(param.getString(Param.PARSER_MODEL));
+        ChunkInfoBuilder builder = new ChunkInfoBuilder(svmModel);
+        builder.add("FHS:太郎");
+        builder.add("GOB:1");
+        builder.add("GCB:1");
+        builder.add("A:助動詞");
+        ChunkInfo chunkInfo = builder.build();
+
+        // features unknown to the model are dropped
+        assertArrayEquals(new int[] { svmModel.id("SHS:太郎") }, chunkInfo.getSrcStaticFeature());
+        assertArrayEquals(new int[0], chunkInfo.getDstStaticFeature());
+        assertEquals(ChunkInfo.BRACKET_OPEN | ChunkInfo.BRACKET_CLOSE, chunkInfo.getBracketStatus());
+        assertArrayEquals(new int[0], chunkInfo.getGapFeature());
+        assertArrayEquals(new int[] { svmModel.id("a:助動詞") }, chunkInfo.getSrcChildFeature());
+        assertArrayEquals(new int[] { svmModel.id("A:助動詞") }, chunkInfo.getDstChildFeature());
+
+        chunkInfo = builder.build();
+        assertEquals(0, chunkInfo.getSrcStaticFeature().length);
+        assertEquals(ChunkInfo.BRACKET_NONE, chunkInfo.getBracketStatus());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buildChunkInfoWithUnknownFeature() throws IOException {
+        SVMModel svmModel = FastSVMModel.openBinaryModel(param.getString(Param.PARSER_MODEL));
+        new ChunkInfoBuilder(svmModel).add("XHS:太郎");
+    }
+
     @Test
     public void parse() throws Exception {
         assertEquals(6, tree.getChunkSize());
 
-        DependencyParser parser = new DependencyParser();
-        parser.open(param);
-        parser.parse(tree);
-        assertEquals(5, tree.chunk(0).getLink());
-        assertEquals(2, tree.chunk(1).getLink());
-        assertEquals(3, tree.chunk(2).getLink());
-        assertEquals(5, tree.chunk(3).getLink());
-        assertEquals(5, tree.chunk(4).getLink());
-        assertEquals(-1, tree.chunk(5).getLink());
+        try (DependencyParser parser = new DependencyParser()) {
+            parser.open(param);
+            parser.parse(tree);
+            assertEquals(5, tree.chunk(0).getLink());
+            assertEquals(2, tree.chunk(1).getLink());
+            assertEquals(3, tree.chunk(2).getLink());
+            assertEquals(5, tree.chunk(3).getLink());
+            assertEquals(5, tree.chunk(4).getLink());
+            assertEquals(-1, tree.chunk(5).getLink());
+        }
+    }
+
+    @Test
+    public void parseSentencesOfDifferentSizes() throws Exception {
+        try (DependencyParser parser = new DependencyParser()) {
+            parser.open(param);
+            parser.parse(tree);
+
+            Tree shortTree = createTree();
+            shortTree.getChunks().subList(0, 3).clear();
+            parser.parse(shortTree);
+            assertEquals(2, shortTree.chunk(0).getLink());
+            assertEquals(2, shortTree.chunk(1).getLink());
+            assertEquals(-1, shortTree.chunk(2).getLink());
+
+            Tree t = createTree();
+            parser.parse(t);
+            for (int i = 0; i < t.getChunkSize(); i++) {
+                assertEquals(tree.chunk(i).getLink(), t.chunk(i).getLink());
+                assertEquals(tree.chunk(i).getScore(), t.chunk(i).getScore(), 0.0);
+            }
+        }
     }
 
+    @Test
+    public void parseWithMappedModel() throws Exception {
+        param.set(Param.MMAP_MODEL, "1");
+
+        try (DependencyParser parser = new DependencyParser()) {
+            parser.open(param);
+            parser.parse(tree);
+            assertEquals(5, tree.chunk(0).getLink());
+            assertEquals(2, tree.chunk(1).getLink());
+            assertEquals(3, tree.chunk(2).getLink());
+            assertEquals(5, tree.chunk(3).getLink());
+            assertEquals(5, tree.chunk(4).getLink());
+            assertEquals(-1, tree.chunk(5).getLink());
+        }
+    }
+
+    @Test
+    public void parseWithSharedInstance() throws Exception {
+        try (DependencyParser parser = new DependencyParser()) {
+            parser.open(param);
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<Tree>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                results.add(executor.submit(() -> {
+                    Tree t = createTree();
+                    parser.parse(t);
+                    return t;
+                }));
+            }
+            executor.shutdown();
+
+            for (Future<Tree> result : results) {
+                Tree t = result.get();
+                assertEquals(5, t.chunk(0).getLink());
+                assertEquals(2, t.chunk(1).getLink());
+                assertEquals(3, t.chunk(2).getLink());
+                assertEquals(5, t.chunk(3).getLink());
+                assertEquals(5, t.chunk(4).getLink());
+                assertEquals(-1, t.chunk(5).getLink());
+            }
+        }
+    }
 }
@@ -28,11 +28,17 @@ class MockMorpheme implements Morpheme {
     String surface;
     String normalizedForm;
     List<String> partOfSpeech;
+    short partOfSpeechId;
 
     MockMorpheme(String surface, String normalizedForm, String partOfSpeech) {
+        this(surface, normalizedForm, partOfSpeech, (short) 0);
+    }
+
+    MockMorpheme(String surface, String normalizedForm, String partOfSpeech, short partOfSpeechId) {
         this.surface = surface;
         this.normalizedForm = (normalizedForm != null) ? normalizedForm : surface;
         this.partOfSpeech = Arrays.asList(partOfSpeech.split(","));
+        this.partOfSpeechId = partOfSpeechId;
     }
 
     public int begin() {
@@ -52,7 +58,7 @@ class MockMorpheme implements Morpheme {
     }
 
     public short partOfSpeechId() {
-        return 0;
+        return partOfSpeechId;
     }
 
     public String dictionaryForm() {
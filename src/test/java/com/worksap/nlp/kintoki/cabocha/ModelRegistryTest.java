@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModelRegistryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    ModelRegistry registry;
+    String path;
+    AtomicInteger loads;
+
+    @Before
+    public void setUp() throws IOException {
+        registry = new ModelRegistry();
+        path = temporaryFolder.newFile("model").getPath();
+        loads = new AtomicInteger();
+    }
+
+    private Object load(String path) {
+        loads.incrementAndGet();
+        return new Object();
+    }
+
+    @Test
+    public void acquireShared() throws IOException {
+        try (ModelRegistry.Handle<Object> h1 = registry.acquire("test", path, this::load);
+                ModelRegistry.Handle<Object> h2 = registry.acquire("test",
+                        new File(path).getAbsolutePath() + "/../model", this::load)) {
+            assertSame(h1.get(), h2.get());
+            assertEquals(1, loads.get());
+            assertEquals(1, registry.size());
+        }
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void acquireWithDifferentTypes() throws IOException {
+        try (ModelRegistry.Handle<Object> h1 = registry.acquire("test", path, this::load);
+                ModelRegistry.Handle<Object> h2 = registry.acquire("other", path, this::load)) {
+            assertNotSame(h1.get(), h2.get());
+            assertEquals(2, registry.size());
+        }
+    }
+
+    @Test
+    public void acquireModifiedFile() throws IOException {
+        ModelRegistry.Handle<Object> h1 = registry.acquire("test", path, this::load);
+        File file = new File(path);
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() + 10000));
+        ModelRegistry.Handle<Object> h2 = registry.acquire("test", path, this::load);
+        assertNotSame(h1.get(), h2.get());
+        h1.close();
+        assertEquals(2, registry.size());
+        h2.close();
+        assertEquals(2, registry.size());
+
+        // the idle model of the previous version is evicted
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() + 10000));
+        registry.acquire("test", path, this::load).close();
+        assertEquals(1, registry.size());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void releaseKeepsIdleModel() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        ModelRegistry.Handle<AutoCloseable> h1 = registry.acquire("test", path, p -> () -> closed.set(true));
+        ModelRegistry.Handle<AutoCloseable> h2 = registry.acquire("test", path, p -> () -> closed.set(true));
+        h1.close();
+        h1.close();
+        h2.close();
+        assertFalse(closed.get());
+        assertEquals(1, registry.size());
+
+        try (ModelRegistry.Handle<AutoCloseable> h3 = registry.acquire("test", path, p -> () -> closed.set(true))) {
+            assertSame(h1.get(), h3.get());
+            // a model in use is not evicted
+            registry.evictIdle();
+            assertFalse(closed.get());
+        }
+        registry.evictIdle();
+        assertTrue(closed.get());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void releaseEvictsLeastRecentlyReleased() throws IOException {
+        registry = new ModelRegistry(1);
+        AtomicBoolean closed1 = new AtomicBoolean(false);
+        AtomicBoolean closed2 = new AtomicBoolean(false);
+        ModelRegistry.Handle<AutoCloseable> h1 = registry.acquire("test1", path, p -> () -> closed1.set(true));
+        ModelRegistry.Handle<AutoCloseable> h2 = registry.acquire("test2", path, p -> () -> closed2.set(true));
+        h1.close();
+        assertFalse(closed1.get());
+        h2.close();
+        assertTrue(closed1.get());
+        assertFalse(closed2.get());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void releaseWithoutIdleModels() throws IOException {
+        registry = new ModelRegistry(0);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        ModelRegistry.Handle<AutoCloseable> handle = registry.acquire("test", path, p -> () -> closed.set(true));
+        handle.close();
+        assertTrue(closed.get());
+        assertEquals(0, registry.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initializeWithNegativeMaxIdle() {
+        new ModelRegistry(-1);
+    }
+
+    @Test
+    public void acquireWithError() throws IOException {
+        try {
+            registry.acquire("test", path, p -> {
+                throw new IOException("broken");
+            });
+        } catch (IOException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        assertEquals(0, registry.size());
+        try (ModelRegistry.Handle<Object> h = registry.acquire("test", path, this::load)) {
+            assertEquals(1, loads.get());
+        }
+    }
+}
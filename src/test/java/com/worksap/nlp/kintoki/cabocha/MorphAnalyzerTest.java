@@ -16,11 +16,18 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import com.worksap.nlp.sudachi.Tokenizer.SplitMode;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
@@ -47,6 +54,11 @@ public class MorphAnalyzerTest {
         tree = new Tree();
     }
 
+    @After
+    public void tearDown() throws IOException {
+        morpher.close();
+    }
+
     @Test
     public void parse() {
         final String sent = "太郎は花子が読んでいる本を次郎に渡した。";
@@ -65,4 +77,77 @@ public class MorphAnalyzerTest {
 
         assertEquals(0, tree.getTokenSize());
     }
+
+    @Test
+    public void openWithSplitMode() throws IOException {
+        int size = ModelRegistry.getDefault().size();
+        Param paramC = new Param();
+        paramC.update(param);
+        paramC.set(Param.SUDACHI_SPLIT_MODE, "c");
+        try (MorphAnalyzer a = new MorphAnalyzer(); MorphAnalyzer c = new MorphAnalyzer()) {
+            a.open(param);
+            c.open(paramC);
+            // shared with the analyzer of setUp()
+            assertEquals(size, ModelRegistry.getDefault().size());
+
+            tree.setSentence("次郎本");
+            a.parse(tree);
+            assertArrayEquals(new String[] { "次郎", "本" },
+                    tree.getTokens().stream().map(t -> t.getSurface()).toArray(String[]::new));
+
+            tree = new Tree();
+            tree.setSentence("次郎本");
+            c.parse(tree);
+            assertArrayEquals(new String[] { "次郎本" },
+                    tree.getTokens().stream().map(t -> t.getSurface()).toArray(String[]::new));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void openWithInvalidSplitMode() throws IOException {
+        param.set(Param.SUDACHI_SPLIT_MODE, "D");
+        new MorphAnalyzer().open(param);
+    }
+
+    @Test
+    public void openWithSystemDict() throws IOException {
+        int size = ModelRegistry.getDefault().size();
+        Param other = new Param();
+        other.update(param);
+        other.set(Param.SUDACHI_SYSTEM_DICT, "system.dic");
+        try (MorphAnalyzer a = new MorphAnalyzer(); MorphAnalyzer b = new MorphAnalyzer()) {
+            a.open(param);
+            b.open(other);
+            assertEquals(size + 1, ModelRegistry.getDefault().size());
+
+            tree.setSentence("太郎は花子が読んでいる本を次郎に渡した。");
+            b.parse(tree);
+            assertEquals(14, tree.getTokenSize());
+        }
+    }
+
+    @Test
+    public void openWithModifiedSystemDict() throws IOException {
+        Param other = new Param();
+        other.update(param);
+        other.set(Param.SUDACHI_SYSTEM_DICT, "system.dic");
+        try (MorphAnalyzer a = new MorphAnalyzer()) {
+            a.open(other);
+            int size = ModelRegistry.getDefault().size();
+            Path dic = temporaryFolder.getRoot().toPath().resolve("system.dic");
+            Files.setLastModifiedTime(dic, FileTime.fromMillis(Files.getLastModifiedTime(dic).toMillis() + 10000));
+            try (MorphAnalyzer b = new MorphAnalyzer()) {
+                b.open(other);
+                assertEquals(size + 1, ModelRegistry.getDefault().size());
+            }
+        }
+    }
+
+    @Test
+    public void parseSplitMode() {
+        assertEquals(SplitMode.A, SudachiTokenizer.parseSplitMode(null));
+        assertEquals(SplitMode.A, SudachiTokenizer.parseSplitMode(" "));
+        assertEquals(SplitMode.B, SudachiTokenizer.parseSplitMode("b"));
+        assertEquals(SplitMode.C, SudachiTokenizer.parseSplitMode(" C "));
+    }
 }
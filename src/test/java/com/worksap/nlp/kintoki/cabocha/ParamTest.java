@@ -28,7 +28,8 @@ public class ParamTest {
     final static String help = "Kintoki-CaboCha\n" + "Copyright(C) Works Applications, All rights reserved.\n" + "\n"
             + "Usage: " + systemName + " [options] files\n" + " -f, --output-format=TYPE  set output format style\n"
             + "\t\t\t    0 - tree(default)\n" + "\t\t\t    1 - lattice\n" + "\t\t\t    2 - tree + lattice\n"
-            + "\t\t\t    3 - XML\n" + "\t\t\t    4 - CoNLL\n" + " -I, --input-layer=LAYER   set input layer\n"
+            + "\t\t\t    3 - XML\n" + "\t\t\t    4 - CoNLL\n" + "\t\t\t    6 - binary\n"
+            + " -I, --input-layer=LAYER   set input layer\n"
             + "\t\t\t    0 - raw sentence layer(default)\n" + "\t\t\t    1 - POS tagged layer\n"
             + "\t\t\t    2 - POS tagger and Chunked layer\n"
             + "\t\t\t    3 - POS tagged, Chunked and Feature selected layer\n"
@@ -39,6 +40,7 @@ public class ParamTest {
             + " -M, --chunker-model=FILE  use FILE as chunker model file\n"
             + " -r, --rcfile=FILE         use FILE as resource file\n"
             + " -d, --sudachi-dict=DIR    use DIR as sudachi dictionary directory\n"
+            + " -t, --threads=N           use N threads for parsing(default 1)\n"
             + " -o, --output=FILE         use FILE as output file\n"
             + " -v, --version             show the version and exit\n"
             + " -h, --help                show this help and exit\n";
@@ -119,4 +121,16 @@ public class ParamTest {
         assertEquals(1, param.getInt(Param.INPUT_LAYER));
         assertEquals(0, param.getInt("Foo"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getBoolean() {
+        Param param = new Param();
+        param.set(Param.MMAP_MODEL, "1");
+        assertTrue(param.getBoolean(Param.MMAP_MODEL));
+        param.set(Param.MMAP_MODEL, "true");
+        assertTrue(param.getBoolean(Param.MMAP_MODEL));
+        param.set(Param.MMAP_MODEL, 0);
+        assertFalse(param.getBoolean(Param.MMAP_MODEL));
+        assertFalse(param.getBoolean("Foo"));
+    }
+}
@@ -17,8 +17,17 @@
 package com.worksap.nlp.kintoki.cabocha;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -65,10 +74,11 @@ public class ParserTest {
             param.loadConfig(configPath);
             param.set(Param.INPUT_LAYER, inputLayer);
             param.set(Param.OUTPUT_LAYER, Constant.CABOCHA_OUTPUT_RAW_SENTENCE);
-            Parser parser = new Parser(param);
-            parser.open();
-            Tree tree = parser.parse("");
-            assertEquals("\n", tree.toString(FormatType.FORMAT_LATTICE));
+            try (Parser parser = new Parser(param)) {
+                parser.open();
+                Tree tree = parser.parse("");
+                assertEquals("\n", tree.toString(FormatType.FORMAT_LATTICE));
+            }
         }
     }
 
@@ -79,10 +89,11 @@ public class ParserTest {
             param.loadConfig(configPath);
             param.set(Param.INPUT_LAYER, inputLayer);
             param.set(Param.OUTPUT_LAYER, Constant.CABOCHA_OUTPUT_POS);
-            Parser parser = new Parser(param);
-            parser.open();
-            Tree tree = parser.parse("");
-            assertEquals("EOS\n", tree.toString(FormatType.FORMAT_LATTICE));
+            try (Parser parser = new Parser(param)) {
+                parser.open();
+                Tree tree = parser.parse("");
+                assertEquals("EOS\n", tree.toString(FormatType.FORMAT_LATTICE));
+            }
         }
     }
 
@@ -93,10 +104,11 @@ public class ParserTest {
             param.loadConfig(configPath);
             param.set(Param.INPUT_LAYER, inputLayer);
             param.set(Param.OUTPUT_LAYER, Constant.CABOCHA_OUTPUT_CHUNK);
-            Parser parser = new Parser(param);
-            parser.open();
-            Tree tree = parser.parse("");
-            assertEquals("EOS\n", tree.toString(FormatType.FORMAT_LATTICE));
+            try (Parser parser = new Parser(param)) {
+                parser.open();
+                Tree tree = parser.parse("");
+                assertEquals("EOS\n", tree.toString(FormatType.FORMAT_LATTICE));
+            }
         }
     }
 
@@ -107,10 +119,11 @@ public class ParserTest {
             param.loadConfig(configPath);
             param.set(Param.INPUT_LAYER, inputLayer);
             param.set(Param.OUTPUT_LAYER, Constant.CABOCHA_OUTPUT_SELECTION);
-            Parser parser = new Parser(param);
-            parser.open();
-            Tree tree = parser.parse("");
-            assertEquals("EOS\n", tree.toString(FormatType.FORMAT_LATTICE));
+            try (Parser parser = new Parser(param)) {
+                parser.open();
+                Tree tree = parser.parse("");
+                assertEquals("EOS\n", tree.toString(FormatType.FORMAT_LATTICE));
+            }
         }
     }
 
@@ -121,10 +134,11 @@ public class ParserTest {
             param.loadConfig(configPath);
             param.set(Param.INPUT_LAYER, inputLayer);
             param.set(Param.OUTPUT_LAYER, Constant.CABOCHA_OUTPUT_DEP);
-            Parser parser = new Parser(param);
-            parser.open();
-            Tree tree = parser.parse("");
-            assertEquals("EOS\n", tree.toString(FormatType.FORMAT_LATTICE));
+            try (Parser parser = new Parser(param)) {
+                parser.open();
+                Tree tree = parser.parse("");
+                assertEquals("EOS\n", tree.toString(FormatType.FORMAT_LATTICE));
+            }
         }
     }
 
@@ -132,8 +146,225 @@ public class ParserTest {
     public void parseToString() throws IOException {
         Param param = new Param();
         param.loadConfig(configPath);
-        Parser parser = new Parser(param);
+        try (Parser parser = new Parser(param)) {
+            parser.open();
+            assertEquals("EOS\n", parser.parseToString(""));
+        }
+    }
+
+    @Test
+    public void parseAll() throws IOException {
+        List<String> sentences = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sentences.add("太郎は花子が読んでいる本を次郎に渡した。");
+            sentences.add("花子は本を太郎に渡した。");
+            sentences.add("");
+            sentences.add("太郎が次郎に本を渡した。");
+        }
+
+        Param param = new Param();
+        param.loadConfig(configPath);
+        param.set(Param.THREADS, 4);
+        try (Parser parser = new Parser(param)) {
+            parser.open();
+            List<Tree> trees = parser.parseAll(sentences);
+            assertEquals(sentences.size(), trees.size());
+            for (int i = 0; i < sentences.size(); i++) {
+                assertEquals(parser.parseToString(sentences.get(i)), trees.get(i).toString(FormatType.FORMAT_TREE));
+            }
+        }
+    }
+
+    @Test
+    public void parseKeepsChunkFeatures() throws IOException {
+        try (Parser parser = new Parser(configPath)) {
+            parser.open();
+            Tree tree = parser.parse("太郎は花子が読んでいる本を次郎に渡した。");
+            assertTrue(tree.getChunkSize() > 1);
+            for (Chunk chunk : tree.getChunks()) {
+                assertFalse(chunk.getFeatureList().isEmpty());
+                assertNull(chunk.getChunkInfo());
+            }
+        }
+    }
+
+    @Test
+    public void parseWithResolveFeatures() throws IOException {
+        final String sent = "太郎は花子が読んでいる本を次郎に渡した。";
+        Param param = new Param();
+        param.loadConfig(configPath);
+        param.set(Param.RESOLVE_FEATURES, 1);
+        try (Parser parser = new Parser(param); Parser expected = new Parser(configPath)) {
+            parser.open();
+            expected.open();
+            Tree tree = parser.parse(sent);
+            assertEquals(expected.parseToString(sent), tree.toString(FormatType.FORMAT_TREE));
+            for (Chunk chunk : tree.getChunks()) {
+                assertTrue(chunk.getFeatureList().isEmpty());
+                assertNotNull(chunk.getChunkInfo());
+            }
+        }
+    }
+
+    @Test
+    public void metrics() throws IOException {
+        try (Parser parser = new Parser(configPath)) {
+            parser.open();
+            ParserMetrics metrics = new ParserMetrics();
+            parser.setMetrics(metrics);
+            parser.parse("太郎は花子が読んでいる本を次郎に渡した。");
+            parser.parse("");
+
+            ParserMetrics.Snapshot snapshot = metrics.snapshot();
+            assertEquals(2, snapshot.getTotalTime().getCount());
+            assertEquals(20, snapshot.getSentenceLength().getMax());
+            assertEquals(0, snapshot.getChunkCount().getMin());
+            assertTrue(snapshot.getChunkCount().getMax() > 1);
+            assertTrue(snapshot.getEstimateCount().getMax() > 0);
+            assertEquals(parser.getAnalyzers().size(), snapshot.getStageTimes().size());
+            assertEquals(2, snapshot.getStageTimes().get("DependencyParser").getCount());
+
+            parser.setMetrics(null);
+            parser.parse("");
+            assertEquals(2, metrics.snapshot().getTotalTime().getCount());
+        }
+    }
+
+    @Test
+    public void closeReleasesModels() throws IOException {
+        // otherwise the idle models of the other tests may be evicted meanwhile
+        ModelRegistry.getDefault().evictIdle();
+        Parser parser = new Parser(configPath);
         parser.open();
-        assertEquals("EOS\n", parser.parseToString(""));
+        int size = ModelRegistry.getDefault().size();
+        Parser other = new Parser(configPath);
+        other.open();
+        assertEquals(size, ModelRegistry.getDefault().size());
+        parser.close();
+        other.close();
+        // the released models are kept idle for the next parser
+        assertEquals(size, ModelRegistry.getDefault().size());
+        ModelRegistry.getDefault().evictIdle();
+        assertTrue(ModelRegistry.getDefault().size() <= size - 3);
+    }
+
+    @Test
+    public void parseToStringWithCache() throws IOException {
+        Param param = new Param();
+        param.loadConfig(configPath);
+        param.set(Param.CACHE_SIZE, 16);
+        try (Parser parser = new Parser(param); Parser uncached = new Parser(configPath)) {
+            parser.open();
+            uncached.open();
+            String sentence = "太郎は花子が読んでいる本を次郎に渡した。";
+            String result = parser.parseToString(sentence);
+            assertEquals(uncached.parseToString(sentence), result);
+            assertEquals(result, parser.parseToString(sentence));
+            assertEquals(1, parser.getCache().getHitCount());
+            assertEquals(1, parser.getCache().getMissCount());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parseToStringWithBinaryFormat() throws IOException {
+        Param param = new Param();
+        param.loadConfig(configPath);
+        param.set(Param.OUTPUT_FORMAT, Constant.CABOCHA_FORMAT_BINARY);
+        param.set(Param.CACHE_SIZE, 16);
+        try (Parser parser = new Parser(param)) {
+            parser.open();
+            parser.parseToString("太郎は花子が読んでいる本を次郎に渡した。");
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parseToWithBinaryFormat() throws IOException {
+        Param param = new Param();
+        param.loadConfig(configPath);
+        param.set(Param.OUTPUT_FORMAT, Constant.CABOCHA_FORMAT_BINARY);
+        try (Parser parser = new Parser(param)) {
+            parser.open();
+            parser.parseTo("太郎は花子が読んでいる本を次郎に渡した。", new StringWriter());
+        }
+    }
+
+    @Test
+    public void parseTo() throws IOException {
+        try (Parser parser = new Parser(configPath)) {
+            parser.open();
+            String sentence = "太郎は花子が読んでいる本を次郎に渡した。";
+            StringWriter writer = new StringWriter();
+            parser.parseTo(sentence, writer);
+            assertEquals(parser.parseToString(sentence), writer.toString());
+        }
+    }
+
+    @Test
+    public void parseDocument() throws IOException {
+        try (Parser parser = new Parser(configPath)) {
+            parser.open();
+            List<String> sentences = Arrays.asList("太郎は花子が読んでいる本を次郎に渡した。", "花子は本を読んだ。");
+            String document = String.join("\n", sentences);
+            List<Tree> trees = parser.parseDocument(document);
+            assertEquals(sentences.size(), trees.size());
+            for (int i = 0; i < sentences.size(); i++) {
+                assertEquals(parser.parseToString(sentences.get(i)), trees.get(i).toString(FormatType.FORMAT_TREE));
+            }
+
+            ParserMetrics metrics = new ParserMetrics();
+            parser.setMetrics(metrics);
+            List<Tree> read = parser.parseDocument(new StringReader(document));
+            assertEquals(sentences.size(), read.size());
+            assertEquals(trees.get(1).toString(FormatType.FORMAT_LATTICE),
+                    read.get(1).toString(FormatType.FORMAT_LATTICE));
+            assertEquals(2, metrics.snapshot().getTotalTime().getCount());
+            assertEquals(2, metrics.snapshot().getStageTimes().get("MorphAnalyzer").getCount());
+
+            // the tokenization of the whole document is counted in the first
+            // sentence, not as a sample of its own
+            parser.parseDocument(document);
+            assertEquals(4, metrics.snapshot().getTotalTime().getCount());
+            assertEquals(4, metrics.snapshot().getStageTimes().get("MorphAnalyzer").getCount());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parseDocumentWithPOSInput() throws IOException {
+        Param param = new Param();
+        param.loadConfig(configPath);
+        param.set(Param.INPUT_LAYER, Constant.CABOCHA_INPUT_POS);
+        try (Parser parser = new Parser(param)) {
+            parser.open();
+            parser.parseDocument("太郎は花子が読んでいる本を次郎に渡した。");
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initializeWithNegativeCacheSize() throws IOException {
+        Param param = new Param();
+        param.loadConfig(configPath);
+        param.set(Param.CACHE_SIZE, -1);
+        new Parser(param);
+    }
+
+    @Test
+    public void parseAllWithStream() throws IOException {
+        Param param = new Param();
+        param.loadConfig(configPath);
+        try (Parser parser = new Parser(param)) {
+            parser.open();
+            List<Tree> trees = parser.parseAll(Stream.of("太郎は花子が読んでいる本を次郎に渡した。", "花子は本を太郎に渡した。"));
+            assertEquals(2, trees.size());
+            assertEquals(6, trees.get(0).getChunkSize());
+            assertEquals(4, trees.get(1).getChunkSize());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initializeWithNegativeThreads() throws IOException {
+        Param param = new Param();
+        param.loadConfig(configPath);
+        param.set(Param.THREADS, -1);
+        new Parser(param);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.worksap.nlp.sudachi.Morpheme;
+
+public class PartOfSpeechCacheTest {
+
+    @Test
+    public void get() {
+        PartOfSpeechCache cache = new PartOfSpeechCache();
+        PartOfSpeechCache.Entry noun = cache.get(new MockMorpheme("太郎", null, "名詞,固有名詞,人名,名,*,*", (short) 3));
+        assertEquals("名詞", noun.pos);
+        assertEquals("名詞,固有名詞,人名,名,*,*", noun.feature);
+        assertEquals(Arrays.asList("名詞", "固有名詞", "人名", "名", "*", "*"), noun.featureList);
+
+        assertSame(noun, cache.get(new MockMorpheme("花子", null, "名詞,固有名詞,人名,名,*,*", (short) 3)));
+        PartOfSpeechCache.Entry particle = cache.get(new MockMorpheme("は", null, "助詞,係助詞,*,*,*,*", (short) 1000));
+        assertEquals("助詞,係助詞,*,*,*,*", particle.feature);
+        assertSame(noun, cache.get(new MockMorpheme("太郎", null, "名詞,固有名詞,人名,名,*,*", (short) 3)));
+    }
+
+    @Test
+    public void getWithNegativeId() {
+        PartOfSpeechCache cache = new PartOfSpeechCache();
+        Morpheme morpheme = new MockMorpheme("太郎", null, "名詞,固有名詞,人名,名,*,*", (short) -1);
+        assertNotSame(cache.get(morpheme), cache.get(morpheme));
+    }
+
+    @Test
+    public void readTree() {
+        List<Morpheme> morphemes = Arrays.asList(new MockMorpheme("太郎", null, "名詞,固有名詞,人名,名,*,*", (short) 3),
+                new MockMorpheme("は", null, "助詞,係助詞,*,*,*,*", (short) 5));
+        Tree expected = new Tree();
+        expected.read(morphemes);
+        Tree tree = new Tree();
+        tree.read(morphemes, new PartOfSpeechCache());
+        tree.setOutputLayer(OutputLayerType.OUTPUT_POS);
+        expected.setOutputLayer(OutputLayerType.OUTPUT_POS);
+        assertEquals(expected.toString(FormatType.FORMAT_LATTICE), tree.toString(FormatType.FORMAT_LATTICE));
+        assertEquals("名詞", tree.token(0).getPos());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PipelineTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    Param param = new Param();
+
+    @Before
+    public void setUp() throws IOException {
+        TestUtils.copyResources(temporaryFolder.getRoot().toPath());
+        String configPath = TestUtils.buildConfig(temporaryFolder.getRoot().toPath());
+        param.loadConfig(configPath);
+    }
+
+    @Test
+    public void getStageSize() throws IOException {
+        Parser parser = new Parser(param);
+        parser.open();
+        try (Pipeline pipeline = new Pipeline(parser)) {
+            assertEquals(4, pipeline.getStageSize());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initializeWithWrongStageSize() throws IOException {
+        Parser parser = new Parser(param);
+        parser.open();
+        new Pipeline(parser, new int[] { 1, 1 }, new int[] { 1, 1 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initializeWithNoThreads() throws IOException {
+        Parser parser = new Parser(param);
+        parser.open();
+        new Pipeline(parser, new int[] { 1, 0, 1, 1 }, new int[] { 1, 1, 1, 1 });
+    }
+
+    @Test
+    public void putAndTake() throws Exception {
+        final List<String> sentences = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sentences.add("太郎は花子が読んでいる本を次郎に渡した。");
+            sentences.add("花子は本を太郎に渡した。");
+            sentences.add("");
+            sentences.add("太郎が次郎に本を渡した。");
+        }
+
+        Parser parser = new Parser(param);
+        parser.open();
+        try (Pipeline pipeline = new Pipeline(parser, new int[] { 2, 1, 1, 3 }, new int[] { 4, 2, 2, 8 })) {
+            Thread producer = new Thread(() -> {
+                try {
+                    for (String sentence : sentences) {
+                        pipeline.put(sentence);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            producer.start();
+
+            for (String sentence : sentences) {
+                assertEquals(parser.parseToString(sentence), pipeline.take().toString(FormatType.FORMAT_TREE));
+            }
+            producer.join();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void takeWithFormatError() throws Exception {
+        param.set(Param.INPUT_LAYER, Constant.CABOCHA_INPUT_POS);
+        Parser parser = new Parser(param);
+        parser.open();
+        try (Pipeline pipeline = new Pipeline(parser)) {
+            pipeline.put("太郎");
+            pipeline.take();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static class AnalyzerError extends Error {
+    }
+
+    @Test
+    public void takeWithError() throws Exception {
+        Parser parser = new Parser(param) {
+            @Override
+            List<Analyzer> getAnalyzers() {
+                return super.getAnalyzers().stream().map(analyzer -> new Analyzer() {
+                    @Override
+                    public void open(Param param) {
+                    }
+
+                    @Override
+                    public void parse(Tree tree) {
+                        if (tree.getSentence().startsWith("x")) {
+                            throw new AnalyzerError();
+                        }
+                        analyzer.parse(tree);
+                    }
+                }).collect(Collectors.toList());
+            }
+        };
+        parser.open();
+        try (Pipeline pipeline = new Pipeline(parser)) {
+            pipeline.put("x");
+            pipeline.put("花子は本を太郎に渡した。");
+            try {
+                pipeline.take();
+                fail();
+            } catch (AnalyzerError e) {
+                // expected
+            }
+            // the workers survive the error
+            assertNotNull(pipeline.take());
+        }
+    }
+}
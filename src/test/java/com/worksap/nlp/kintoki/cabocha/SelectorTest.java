@@ -16,15 +16,21 @@
 
 package com.worksap.nlp.kintoki.cabocha;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.worksap.nlp.kintoki.cabocha.svm.FastSVMModel;
+import com.worksap.nlp.kintoki.cabocha.svm.SVMModel;
+
 import java.io.IOException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class SelectorTest {
 
@@ -56,6 +62,13 @@ public class SelectorTest {
         tree = new Tree();
     }
 
+    @After
+    public void tearDown() throws IOException {
+        morpher.close();
+        chunker.close();
+        selecter.close();
+    }
+
     @Test
     public void parse() {
         final String sent = "太郎は花子が読んでいる本を次郎に渡した。";
@@ -93,4 +106,44 @@ public class SelectorTest {
         assertEquals(1, chunk.getFuncPos());
     }
 
+    @Test
+    public void parseWithModel() throws IOException {
+        final String sent = "太郎は花子が読んでいる本を次郎に渡した。";
+        SVMModel model = FastSVMModel.openBinaryModel(param.getString(Param.PARSER_MODEL));
+        Selector resolver = new Selector(model);
+        resolver.open(param);
+
+        tree.setSentence(sent);
+        morpher.parse(tree);
+        chunker.parse(tree);
+        resolver.parse(tree);
+
+        Tree expected = new Tree();
+        expected.setSentence(sent);
+        morpher.parse(expected);
+        chunker.parse(expected);
+        selecter.parse(expected);
+
+        assertEquals(expected.getChunkSize(), tree.getChunkSize());
+        for (int i = 0; i < tree.getChunkSize(); i++) {
+            Chunk chunk = tree.chunk(i);
+            assertTrue(chunk.getFeatureList().isEmpty());
+            assertEquals(expected.chunk(i).getHeadPos(), chunk.getHeadPos());
+            assertEquals(expected.chunk(i).getFuncPos(), chunk.getFuncPos());
+
+            ChunkInfoBuilder builder = new ChunkInfoBuilder(model);
+            expected.chunk(i).getFeatureList().forEach(builder::add);
+            ChunkInfo expectedInfo = builder.build();
+            ChunkInfo info = chunk.getChunkInfo();
+            assertArrayEquals(expectedInfo.getSrcStaticFeature(), info.getSrcStaticFeature());
+            assertArrayEquals(expectedInfo.getDstStaticFeature(), info.getDstStaticFeature());
+            assertArrayEquals(expectedInfo.getLeftContextFeature(), info.getLeftContextFeature());
+            assertArrayEquals(expectedInfo.getRightContextFeature(), info.getRightContextFeature());
+            assertArrayEquals(expectedInfo.getGapFeature(), info.getGapFeature());
+            assertEquals(expectedInfo.getBracketStatus(), info.getBracketStatus());
+            assertArrayEquals(expectedInfo.getSrcChildFeature(), info.getSrcChildFeature());
+            assertArrayEquals(expectedInfo.getDstChildFeature(), info.getDstChildFeature());
+            assertTrue(info.getSrcStaticFeature().length > 0);
+        }
+    }
 }
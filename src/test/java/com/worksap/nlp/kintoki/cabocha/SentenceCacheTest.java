@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class SentenceCacheTest {
+
+    @Test
+    public void getAndPut() {
+        SentenceCache cache = new SentenceCache(10);
+        assertNull(cache.get("a"));
+        cache.put("a", "A");
+        assertEquals("A", cache.get("a"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 0.0);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void getWithWhitespace() {
+        SentenceCache cache = new SentenceCache(10);
+        cache.put("a", "A");
+        assertNull(cache.get("a\n"));
+        assertNull(cache.get("a "));
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        SentenceCache cache = new SentenceCache(1);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        assertNull(cache.get("a"));
+        assertEquals("B", cache.get("b"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void bounded() {
+        SentenceCache cache = new SentenceCache(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("sentence" + i, "result" + i);
+        }
+        assertEquals(100, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createWithZeroSize() {
+        new SentenceCache(0);
+    }
+}
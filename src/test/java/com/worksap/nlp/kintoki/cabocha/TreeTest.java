@@ -18,6 +18,9 @@ package com.worksap.nlp.kintoki.cabocha;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 import org.junit.Test;
 
 public class TreeTest {
@@ -158,6 +161,81 @@ public class TreeTest {
                 + "            次郎に-D\n" + "              渡した\n" + "EOS\n", sb.toString());
     }
 
+    @Test
+    public void writeTo() throws IOException {
+        final String input = "* 0 1D 0/1 1.5\n太郎\t名詞,固有名詞,人名,名,*,*,太郎,タロウ,タロー\nは\t助詞,係助詞,*,*,*,*,は,ハ,ワ\n* 1 -1D 0/1 0.0\n花子\t名詞,固有名詞,人名,名,*,*,花子,ハナコ,ハナコ\nが\t助詞,格助詞,一般,*,*,*,が,ガ,ガ\n";
+        Tree tree = new Tree();
+        tree.read(input, InputLayerType.INPUT_DEP);
+        tree.setOutputLayer(OutputLayerType.OUTPUT_DEP);
+        StringWriter writer = new StringWriter();
+        tree.writeTo(writer, FormatType.FORMAT_TREE_LATTICE);
+        assertEquals(tree.toString(FormatType.FORMAT_TREE_LATTICE), writer.toString());
+        assertEquals("太郎は-D\n  花子が\nEOS\n" + input + "EOS\n", writer.toString());
+    }
+
+    @Test
+    public void writeConll() {
+        final String input = "* 0 1D 0/1 1.5\n太郎\t名詞,固有名詞,人名,名,*,*,太郎,タロウ,タロー\nは\t助詞,係助詞,*,*,*,*,は,ハ,ワ\n* 1 -1D 0/1 0.0\n読ん\t動詞,自立,*,*,五段・マ行,連用タ接続,読む,ヨン,ヨン\nだ\t助動詞,*,*,*,特殊・タ,基本形,*\n";
+        Tree tree = new Tree();
+        tree.read(input, InputLayerType.INPUT_DEP);
+        tree.setOutputLayer(OutputLayerType.OUTPUT_DEP);
+        assertEquals("1\t太郎\t太郎\t名詞\t名詞-固有名詞-人名-名\t_\t3\tD\t_\t_\n"
+                + "2\tは\tは\t助詞\t助詞-係助詞\t_\t1\tI\t_\t_\n"
+                + "3\t読ん\t読む\t動詞\t動詞-自立\t五段・マ行|連用タ接続\t0\tROOT\t_\t_\n"
+                + "4\tだ\tだ\t助動詞\t助動詞\t特殊・タ|基本形\t3\tI\t_\t_\n\n", tree.toString(FormatType.FORMAT_CONLL));
+
+        tree.setOutputLayer(OutputLayerType.OUTPUT_CHUNK);
+        assertEquals("1\t太郎\t太郎\t名詞\t名詞-固有名詞-人名-名\t_\t_\t_\t_\t_\n",
+                tree.toString(FormatType.FORMAT_CONLL).split("(?<=\n)")[0]);
+    }
+
+    @Test
+    public void writeXml() {
+        final String input = "* 0 1D 0/1 1.5\n太郎\t名詞,固有名詞,人名,名,*,*,太郎,タロウ,タロー\nは\t助詞,係助詞,*,*,*,*,は,ハ,ワ\n* 1 -1D 0/0 0.0\n<&>\t記号,一般,*,*,*,*,\"'\n";
+        Tree tree = new Tree();
+        tree.read(input, InputLayerType.INPUT_DEP);
+        tree.setOutputLayer(OutputLayerType.OUTPUT_DEP);
+        assertEquals("<sentence>\n" + " <chunk id=\"0\" link=\"1\" rel=\"D\" score=\"1.5\" head=\"0\" func=\"1\">\n"
+                + "  <tok id=\"0\" feature=\"名詞,固有名詞,人名,名,*,*,太郎,タロウ,タロー\">太郎</tok>\n"
+                + "  <tok id=\"1\" feature=\"助詞,係助詞,*,*,*,*,は,ハ,ワ\">は</tok>\n" + " </chunk>\n"
+                + " <chunk id=\"1\" link=\"-1\" rel=\"D\" score=\"0.0\" head=\"2\" func=\"2\">\n"
+                + "  <tok id=\"2\" feature=\"記号,一般,*,*,*,*,&quot;&apos;\">&lt;&amp;&gt;</tok>\n" + " </chunk>\n"
+                + "</sentence>\n", tree.toString(FormatType.FORMAT_XML));
+
+        tree.setOutputLayer(OutputLayerType.OUTPUT_POS);
+        assertEquals("<sentence>\n" + " <tok id=\"0\" feature=\"名詞,固有名詞,人名,名,*,*,太郎,タロウ,タロー\">太郎</tok>\n"
+                + " <tok id=\"1\" feature=\"助詞,係助詞,*,*,*,*,は,ハ,ワ\">は</tok>\n"
+                + " <tok id=\"2\" feature=\"記号,一般,*,*,*,*,&quot;&apos;\">&lt;&amp;&gt;</tok>\n" + "</sentence>\n",
+                tree.toString(FormatType.FORMAT_XML));
+    }
+
+    @Test
+    public void writeXmlWithRawSentence() throws IOException {
+        Tree tree = new Tree();
+        tree.read("a<b", InputLayerType.INPUT_RAW_SENTENCE);
+        tree.setOutputLayer(OutputLayerType.OUTPUT_RAW_SENTENCE);
+        StringWriter writer = new StringWriter();
+        tree.writeTo(writer, FormatType.FORMAT_XML);
+        assertEquals("<sentence>a&lt;b</sentence>\n", writer.toString());
+    }
+
+    @Test
+    public void writeEmptyConll() {
+        Tree tree = new Tree();
+        tree.setOutputLayer(OutputLayerType.OUTPUT_DEP);
+        assertEquals("\n", tree.toString(FormatType.FORMAT_CONLL));
+    }
+
+    @Test
+    public void appendInt() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int value : new int[] { 0, 7, 10, -1, 1234567890, Integer.MIN_VALUE, Integer.MAX_VALUE }) {
+            sb.setLength(0);
+            Tree.appendInt(sb, value);
+            assertEquals(Integer.toString(value), sb.toString());
+        }
+    }
+
     @Test
     public void writeEmptyRawSentence() {
         Tree tree = new Tree();
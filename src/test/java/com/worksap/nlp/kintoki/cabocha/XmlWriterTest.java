@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class XmlWriterTest {
+
+    @Test
+    public void attributeWithWhitespace() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        new XmlWriter(sb).startElement("tok").attribute("feature", "a\tb\nc\rd e").endAttributes();
+        assertEquals("<tok feature=\"a&#9;b&#10;c&#13;d e\">", sb.toString());
+    }
+
+    @Test
+    public void charactersWithWhitespace() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        new XmlWriter(sb).characters("a\tb\nc\rd<e\u0001");
+        assertEquals("a\tb\nc\rd&lt;e", sb.toString());
+    }
+}
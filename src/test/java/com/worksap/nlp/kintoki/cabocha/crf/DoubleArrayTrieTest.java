@@ -21,6 +21,7 @@ import org.junit.Test;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -74,4 +75,23 @@ public class DoubleArrayTrieTest {
         assertThat(dat.exactMatchSearch("c"), is(2));
         assertThat(dat.exactMatchSearch("b"), is(-1));
     }
+
+    @Test
+    public void exactMatchSearchWithRange() {
+        byte[] key = "xabc".getBytes(StandardCharsets.UTF_8);
+        assertThat(dat.exactMatchSearch(key, 1, 1), is(0));
+        assertThat(dat.exactMatchSearch(key, 1, 2), is(1));
+        assertThat(dat.exactMatchSearch(key, 3, 1), is(2));
+        assertThat(dat.exactMatchSearch(key, 0, 2), is(-1));
+    }
+
+    @Test
+    public void traverse() {
+        byte[] key = "ab".getBytes(StandardCharsets.UTF_8);
+        int node = dat.traverse(dat.rootNode(), key, 0, 1);
+        assertThat(dat.valueAt(node), is(0));
+        assertThat(dat.valueAt(dat.traverse(node, key, 1, 1)), is(1));
+        assertThat(dat.traverse(node, key, 0, 1), is(-1));
+        assertThat(dat.exactMatchSearch(new StringBuilder("ab")), is(1));
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha.crf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.worksap.nlp.kintoki.cabocha.TestUtils;
+
+public class ModelTest {
+
+    private String modelFileName;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws IOException {
+        TestUtils.copyResources(temporaryFolder.getRoot().toPath());
+        modelFileName = temporaryFolder.getRoot().toPath().resolve("chunk.bccwj.model").toString();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void openBinaryModelWithNegativeCostFactor() throws IOException {
+        Model.openBinaryModel(modelFileName, -1.0, false);
+    }
+
+    @Test
+    public void ynames() throws IOException {
+        Model model = Model.openBinaryModel(modelFileName, 1.0, false);
+        assertEquals("B", model.ynames().get(0));
+        assertEquals("I", model.ynames().get(1));
+    }
+
+    @Test
+    public void createTagger() throws IOException {
+        Model model = Model.openBinaryModel(modelFileName, 1.0, false);
+        Tagger tagger1 = model.createTagger();
+        Tagger tagger2 = model.createTagger();
+        assertNotSame(tagger1, tagger2);
+
+        tagger1.add("太郎", "名詞-固有名詞-人名-名");
+        tagger1.add("は", "助詞-係助詞");
+        tagger2.add("花子", "名詞-固有名詞-人名-名");
+        tagger1.parse();
+        tagger2.parse();
+
+        assertEquals(2, tagger1.size());
+        assertEquals(1, tagger2.size());
+        assertEquals(0, tagger1.y(0));
+        assertEquals(1, tagger1.y(1));
+        assertEquals(0, tagger2.y(0));
+    }
+
+}
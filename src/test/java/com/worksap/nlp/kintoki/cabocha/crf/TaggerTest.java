@@ -25,6 +25,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import com.worksap.nlp.kintoki.cabocha.TestUtils;
 
@@ -48,6 +50,19 @@ public class TaggerTest {
         assertNotNull(tagger);
     }
 
+    @Test
+    public void openBinaryModelWithMmap() throws IOException {
+        String path = temporaryFolder.getRoot().toPath().resolve("chunk.mmap.model").toString();
+        Files.copy(Paths.get(modelFileName), Paths.get(path));
+        tagger = Tagger.openBinaryModel(path, 1.0, true);
+        tagger.add("太郎", "名詞-固有名詞-人名-名");
+        tagger.add("は", "助詞-係助詞");
+        tagger.parse();
+
+        assertEquals(0, tagger.y(0));
+        assertEquals(1, tagger.y(1));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void openBinaryModelWithNegativeCostFactor() throws IOException {
         tagger = Tagger.openBinaryModel(modelFileName, -1.0);
@@ -84,6 +99,30 @@ public class TaggerTest {
         assertEquals(1, tagger.y(3));
     }
 
+    @Test
+    public void parseAfterClear() {
+        for (int i = 0; i < 20; i++) {
+            tagger.add("太郎", "名詞-固有名詞-人名-名");
+            tagger.add("は", "助詞-係助詞");
+        }
+        tagger.parse();
+        tagger.clear();
+
+        tagger.add("花子", "名詞-固有名詞-人名-名");
+        tagger.add("が", "助詞-格助詞");
+        tagger.parse();
+        assertEquals(2, tagger.size());
+        assertEquals(0, tagger.y(0));
+        assertEquals(1, tagger.y(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void yOutOfRange() {
+        tagger.add("花子", "名詞-固有名詞-人名-名");
+        tagger.parse();
+        tagger.y(1);
+    }
+
     @Test
     public void parseWithEmpty() {
         tagger.parse();
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ByteUtilTest {
+
+    @Test
+    public void encodeUtf8() {
+        for (String s : new String[] { "", "abc", "é", "太郎", "𠮷野家", "a\ud842", "\udfb7b" }) {
+            byte[] bytes = new byte[1 + 3 * s.length()];
+            int end = ByteUtil.encodeUtf8(s, bytes, 1);
+            assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), Arrays.copyOfRange(bytes, 1, end));
+        }
+    }
+
+    @Test
+    public void encodeUtf8WithStep() {
+        // sums the bytes of "𠮷野" after the first character
+        String s = "a𠮷野";
+        int sum = 0;
+        for (byte b : s.substring(1).getBytes(StandardCharsets.UTF_8)) {
+            sum += Byte.toUnsignedInt(b);
+        }
+        assertEquals(sum, ByteUtil.encodeUtf8(s, 1, s.length(), 0, (state, b) -> state + b));
+
+        // stops at a negative state
+        assertEquals(-1,
+                ByteUtil.encodeUtf8(s, 0, s.length(), 0, (state, b) -> state < 0 || b == 0xf0 ? -1 : state + 1));
+    }
+}
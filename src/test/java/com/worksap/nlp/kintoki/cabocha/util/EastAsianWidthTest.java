@@ -16,7 +16,16 @@
 
 package com.worksap.nlp.kintoki.cabocha.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 import org.junit.Test;
 
@@ -28,5 +37,52 @@ public class EastAsianWidthTest {
         assertEquals(4, EastAsianWidth.getEastAsianWidth("計ab"));
         assertEquals(3, EastAsianWidth.getEastAsianWidth("ｶﾀ4"));
         assertEquals(0, EastAsianWidth.getEastAsianWidth(""));
+        assertEquals(5, EastAsianWidth.getEastAsianWidth("\uD842\uDFB7a\uD83D\uDE00"));
+    }
+
+    @Test
+    public void isWide() {
+        assertFalse(EastAsianWidth.isWide('a'));
+        assertFalse(EastAsianWidth.isWide(0x10FF));
+        assertTrue(EastAsianWidth.isWide(0x1100));
+        assertTrue(EastAsianWidth.isWide(0x115F));
+        assertFalse(EastAsianWidth.isWide(0x1160));
+        assertTrue(EastAsianWidth.isWide(0xFFFD));
+        assertFalse(EastAsianWidth.isWide(0xFFFE));
+        assertFalse(EastAsianWidth.isWide(0x10000));
+        assertTrue(EastAsianWidth.isWide(0x20000));
+        assertTrue(EastAsianWidth.isWide(0x2FFFD));
+        assertFalse(EastAsianWidth.isWide(0x2FFFE));
+        assertTrue(EastAsianWidth.isWide(0x10FFFD));
+        assertFalse(EastAsianWidth.isWide(0x10FFFF));
+    }
+
+    @Test
+    public void loadDefaultRanges() {
+        assertNotNull(EastAsianWidth.class.getResource(EastAsianWidth.RESOURCE));
+        assertTrue(EastAsianWidth.loadDefaultRanges().length > 0);
+    }
+
+    @Test
+    public void loadRanges() throws IOException {
+        int[][] ranges = EastAsianWidth.loadRanges(new ByteArrayInputStream(ranges(0x1100, 0x1160, 0x20000, 0x2FFFE)));
+        assertEquals(2, ranges.length);
+        assertArrayEquals(new int[] { 0x20000, 0x2FFFE }, ranges[1]);
+    }
+
+    @Test(expected = IOException.class)
+    public void loadOverlappingRanges() throws IOException {
+        EastAsianWidth.loadRanges(new ByteArrayInputStream(ranges(0x1100, 0x1160, 0x1150, 0x1170)));
+    }
+
+    private static byte[] ranges(int... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(values.length / 2);
+            for (int value : values) {
+                output.writeInt(value);
+            }
+        }
+        return bytes.toByteArray();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Works Applications Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.worksap.nlp.kintoki.cabocha.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketIndex() {
+        for (int i = 0; i < Histogram.LINEAR_SIZE; i++) {
+            assertEquals(i, Histogram.bucketIndex(i));
+        }
+        for (long value : new long[] { 64, 65, 100, 1000, 123456789L, Long.MAX_VALUE }) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(value <= Histogram.bucketUpperBound(index));
+            assertTrue(value > Histogram.bucketUpperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void snapshot() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(5050, snapshot.getSum());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(100, snapshot.getMax());
+        assertEquals(50.5, snapshot.getMean(), 0.0);
+        assertEquals(1, snapshot.getValueAtPercentile(0.0));
+        assertEquals(50, snapshot.getValueAtPercentile(50.0));
+        assertEquals(100, snapshot.getValueAtPercentile(100.0));
+        long p99 = snapshot.getValueAtPercentile(99.0);
+        assertTrue(99 <= p99 && p99 < 99 + 99 / Histogram.SUB_BUCKET_SIZE + 1);
+    }
+
+    @Test
+    public void emptySnapshot() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0.0, snapshot.getMean(), 0.0);
+        assertEquals(0, snapshot.getValueAtPercentile(50.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void recordNegativeValue() {
+        new Histogram().record(-1);
+    }
+}